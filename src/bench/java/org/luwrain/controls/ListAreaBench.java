@@ -0,0 +1,77 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.controls;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import org.luwrain.core.*;
+import org.luwrain.core.events.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ListAreaBench
+{
+    static private final InputEvent
+	ARROW_DOWN = new InputEvent(InputEvent.Special.ARROW_DOWN),
+	HOME = new InputEvent(InputEvent.Special.HOME),
+	END = new InputEvent(InputEvent.Special.END);
+
+    @Param({"100", "10000"}) public int itemCount;
+
+    private ListArea<String> area;
+    private String lastItem;
+
+    @Setup public void setup()
+    {
+	final String[] items = new String[itemCount];
+	for(int i = 0;i < items.length;i++)
+	    items[i] = "item" + i;
+	this.lastItem = items[items.length - 1];
+	final ListArea.Params<String> params = new ListArea.Params<>();
+	params.context = new TestingControlContext();
+	params.name = "bench";
+	params.model = new ListUtils.FixedModel<>(items);
+	params.appearance = new ListUtils.DefaultAppearance<>(params.context);
+	this.area = new ListArea<>(params);
+    }
+
+    @Benchmark public boolean arrowDown()
+    {
+	if (area.getHotPointY() + 1 >= area.getLineCount())
+	    area.onInputEvent(HOME);
+	return area.onInputEvent(ARROW_DOWN);
+    }
+
+    @Benchmark public boolean homeEnd()
+    {
+	area.onInputEvent(END);
+	return area.onInputEvent(HOME);
+    }
+
+    //Typing the name of the last item, every character scans the list from the beginning
+    @Benchmark public boolean typeAhead()
+    {
+	area.onInputEvent(HOME);
+	boolean res = true;
+	for(int i = 0;i < lastItem.length();i++)
+	    res &= area.onInputEvent(new InputEvent(lastItem.charAt(i)));
+	return res;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.controls;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MultilineEditTranslatorBench
+{
+    static private final String LINE = "The quick brown fox jumps over the lazy dog, again and again.";
+
+    @Param({"1000", "100000"}) public int lineCount;
+
+    private MutableLinesImpl lines;
+    private TestingHotPointControl hotPoint;
+    private MultilineEditTranslator translator;
+    private int middle;
+
+    @Setup public void setup()
+    {
+	final String[] text = new String[lineCount];
+	for(int i = 0;i < text.length;i++)
+	    text[i] = LINE;
+	this.lines = new MutableLinesImpl(text);
+	this.hotPoint = new TestingHotPointControl();
+	this.translator = new MultilineEditTranslator(lines, hotPoint);
+	this.middle = lineCount / 2;
+    }
+
+    //Every benchmark leaves the text as it was
+    @Benchmark public Object putAndDeleteChar()
+    {
+	translator.putChars(10, middle, "a");
+	return translator.deleteChar(10, middle);
+    }
+
+    @Benchmark public Object splitAndMerge()
+    {
+	translator.splitLine(20, middle);
+	return translator.mergeLines(middle);
+    }
+
+    @Benchmark public Object insertAndDeleteRegion()
+    {
+	translator.insertRegion(5, middle, new String[]{"first", "second", "third"});
+	return translator.deleteRegion(5, middle, 5, middle + 2);
+    }
+}
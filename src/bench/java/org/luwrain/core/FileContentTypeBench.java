@@ -0,0 +1,43 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import java.util.concurrent.*;
+import java.io.*;
+
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FileContentTypeBench
+{
+    private final FileContentType contentTypes = new FileContentType();
+    private final File
+	known = new File("/home/user/documents/report.docx"),
+	unknown = new File("/home/user/documents/data.unknown-extension");
+
+    @Benchmark public String known()
+    {
+	return contentTypes.suggestContentType(known, ContentTypes.ExpectedType.ANY);
+    }
+
+    @Benchmark public String unknown()
+    {
+	return contentTypes.suggestContentType(unknown, ContentTypes.ExpectedType.ANY);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import java.util.concurrent.*;
+import java.io.*;
+
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PropertiesBench
+{
+    private Settings.UserInterface proxy;
+    private PropertiesRegistry props;
+    private int counter = 0;
+
+    @Setup public void setup()
+    {
+	final Registry registry = new org.luwrain.registry.mem.RegistryImpl();
+	registry.addDirectory(Settings.UI_PATH);
+	this.proxy = Settings.createUserInterface(registry);
+	proxy.setWindowTitle("LUWRAIN");
+	proxy.setIdleDelay(1000);
+	final File tmp = new File(System.getProperty("java.io.tmpdir"));
+	final org.luwrain.core.properties.PropertiesFiles files = new org.luwrain.core.properties.PropertiesFiles();
+	files.load(new File("properties"));
+	this.props = new PropertiesRegistry(new PropertiesProvider[]{
+		new org.luwrain.core.properties.Basic(tmp, tmp, tmp),
+		files,
+	    });
+    }
+
+    @Benchmark public String proxyGetString()
+    {
+	return proxy.getWindowTitle("");
+    }
+
+    @Benchmark public int proxyGetInt()
+    {
+	return proxy.getIdleDelay(0);
+    }
+
+    @Benchmark public int proxySetInt()
+    {
+	counter++;
+	proxy.setIdleDelay(counter);
+	return counter;
+    }
+
+    @Benchmark public String getBasicProperty()
+    {
+	return props.getProperty("luwrain.dir.data");
+    }
+
+    //Goes through all the providers every time
+    @Benchmark public String getMissingProperty()
+    {
+	return props.getProperty("luwrain.bench.missing");
+    }
+}
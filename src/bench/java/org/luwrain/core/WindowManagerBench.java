@@ -0,0 +1,101 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import org.luwrain.controls.*;
+import org.luwrain.interaction.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WindowManagerBench
+{
+    @Param({"80x25", "200x60"}) public String screen;
+    @Param({"1", "3"}) public int areaCount;
+
+    private HeadlessInteraction interaction;
+    private WindowManager windowManager;
+
+    @Setup public void setup()
+    {
+	final int pos = screen.indexOf("x");
+	this.interaction = new HeadlessInteraction(Integer.parseInt(screen.substring(0, pos)), Integer.parseInt(screen.substring(pos + 1)));
+	final Area[] areas = new Area[areaCount];
+	for(int i = 0;i < areas.length;i++)
+	{
+	    final String[] lines = new String[1000];
+	    for(int j = 0;j < lines.length;j++)
+		lines[j] = "Area " + i + ", line " + j + ": the quick brown fox jumps over the lazy dog";
+	    final ListArea.Params<String> params = new ListArea.Params<>();
+	    params.context = new TestingControlContext();
+	    params.name = "area" + i;
+	    params.model = new ListUtils.FixedModel<>(lines);
+	    params.appearance = new ListUtils.DefaultAppearance<>(params.context);
+	    areas[i] = new ListArea<>(params);
+	}
+	final AreaLayout layout;
+	switch(areaCount)
+	{
+	case 1:
+	    layout = new AreaLayout(areas[0]);
+	    break;
+	case 3:
+	    layout = new AreaLayout(AreaLayout.LEFT_TOP_BOTTOM, areas[0], areas[1], areas[2]);
+	    break;
+	default:
+	    throw new IllegalArgumentException("areaCount");
+	}
+	final AppManager apps = new AppManager();
+	if (!apps.newApp(new BenchApp(layout)))
+	    throw new IllegalStateException("Unable to launch the benchmark app");
+	this.windowManager = new WindowManager(interaction, new ScreenContentManager(apps));
+    }
+
+    @Benchmark public long redraw()
+    {
+	windowManager.redraw();
+	return interaction.getDrawSessionCount();
+    }
+
+    static private final class BenchApp implements Application
+    {
+	private final AreaLayout layout;
+	BenchApp(AreaLayout layout)
+	{
+	    this.layout = layout;
+	}
+	@Override public InitResult onLaunchApp(Luwrain luwrain)
+	{
+	    return new InitResult();
+	}
+	@Override public String getAppName()
+	{
+	    return "bench";
+	}
+	@Override public AreaLayout getAreaLayout()
+	{
+	    return layout;
+	}
+	@Override public void closeApp()
+	{
+	}
+    }
+}
@@ -0,0 +1,103 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.registry;
+
+import java.util.concurrent.*;
+import java.io.*;
+import java.nio.file.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import org.luwrain.core.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RegistryBench
+{
+    static private final int
+	DIR_COUNT = 20,
+	VALUE_COUNT = 20;
+
+    @Param({"mem", "fsdir"}) public String impl;
+
+    private java.nio.file.Path tmpDir = null;
+    private Registry registry;
+    private int counter = 0;
+
+    @Setup public void setup() throws IOException
+    {
+	if (impl.equals("fsdir"))
+	{
+	    this.tmpDir = Files.createTempDirectory("luwrain-registry-bench");
+	    this.registry = new org.luwrain.registry.fsdir.RegistryImpl(tmpDir);
+	} else
+	    this.registry = new org.luwrain.registry.mem.RegistryImpl();
+	for(int i = 0;i < DIR_COUNT;i++)
+	{
+	    final String dir = getDir(i);
+	    registry.addDirectory(dir);
+	    for(int j = 0;j < VALUE_COUNT;j++)
+	    {
+		registry.setString(Registry.join(dir, "str" + j), "value" + j);
+		registry.setInteger(Registry.join(dir, "int" + j), j);
+	    }
+	}
+    }
+
+    @TearDown public void tearDown() throws IOException
+    {
+	if (tmpDir == null)
+	    return;
+	Files.walk(tmpDir).sorted(java.util.Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+    }
+
+    @Benchmark public String getString()
+    {
+	counter++;
+	return registry.getString(Registry.join(getDir(counter % DIR_COUNT), "str" + (counter % VALUE_COUNT)));
+    }
+
+    @Benchmark public int getInteger()
+    {
+	counter++;
+	return registry.getInteger(Registry.join(getDir(counter % DIR_COUNT), "int" + (counter % VALUE_COUNT)));
+    }
+
+    @Benchmark public int getTypeOf()
+    {
+	counter++;
+	return registry.getTypeOf(Registry.join(getDir(counter % DIR_COUNT), "str" + (counter % VALUE_COUNT)));
+    }
+
+    @Benchmark public boolean setString()
+    {
+	counter++;
+	return registry.setString(Registry.join(getDir(counter % DIR_COUNT), "str" + (counter % VALUE_COUNT)), "new value " + counter);
+    }
+
+    @Benchmark public String[] getValues()
+    {
+	counter++;
+	return registry.getValues(getDir(counter % DIR_COUNT));
+    }
+
+    static private String getDir(int index)
+    {
+	return "/org/luwrain/bench/dir" + index;
+    }
+}
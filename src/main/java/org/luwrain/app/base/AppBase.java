@@ -217,7 +217,16 @@ abstract public class AppBase<S> extends TaskCancelling implements Application
 	if (isBusy())
 	    return false;
 	this.task = task;
-	luwrain.executeBkg(this.task);
+	try {
+	    luwrain.executeBkg(this.task);
+	}
+	catch(RejectedExecutionException e)
+	{
+	    this.task = null;
+	    //The details are already logged by the core
+	    luwrain.message(luwrain.i18n().getStaticStr("BkgTaskRejected"), Luwrain.MessageType.ERROR);
+	    return false;
+	}
 	for(Area a: visibleAreas)
 	    luwrain.onAreaNewBackgroundSound(a);
 	return true;
@@ -77,26 +77,53 @@ public interface ActionHandler
     static public final class Actions
     {
 	private final ActionInfo[] actions;
+	private final org.luwrain.core.Action[] areaActions;
+	//The enabled actions of the last returned array; the same array is returned while they are the same, so the core can keep its keymap
+	private final boolean[] enabled;
+	private org.luwrain.core.Action[] lastAreaActions = null;
 	public Actions(ActionInfo[] actions)
 	{
 	    NullCheck.notNullItems(actions, "actions");
 	    this.actions = actions.clone();
+	    this.areaActions = new org.luwrain.core.Action[this.actions.length];
+	    for(int i = 0;i < this.actions.length;i++)
+	    {
+		final ActionInfo a = this.actions[i];
+		if (a.inputEvent != null)
+		    areaActions[i] = new org.luwrain.core.Action(a.name, a.title, a.inputEvent); else
+		    areaActions[i] = new org.luwrain.core.Action(a.name, a.title);
+	    }
+	    this.enabled = new boolean[this.actions.length];
 	}
 	public Actions()
 	{
 	    this(new ActionInfo[0]);
 	}
+	//The same array is returned while the enabled actions are the same, so it must not be modified by the callers
 	public org.luwrain.core.Action[] getAreaActions()
 	{
-	    final List<org.luwrain.core.Action> res = new ArrayList<>();
-	    for(ActionInfo a: actions)
-		if (a.cond == null || a.cond.isActionInfoEnabled())
+	    boolean changed = (lastAreaActions == null);
+	    int count = 0;
+	    for(int i = 0;i < actions.length;i++)
+	    {
+		final boolean e = (actions[i].cond == null || actions[i].cond.isActionInfoEnabled());
+		if (e != enabled[i])
 		{
-		    if (a.inputEvent != null)
-			res.add(new org.luwrain.core.Action(a.name, a.title, a.inputEvent)); else
-			res.add(new org.luwrain.core.Action(a.name, a.title));
+		    enabled[i] = e;
+		    changed = true;
 		}
-	    return res.toArray(new org.luwrain.core.Action[res.size()]);
+		if (e)
+		    count++;
+	    }
+	    if (!changed)
+		return lastAreaActions;
+	    final org.luwrain.core.Action[] res = new org.luwrain.core.Action[count];
+	    int pos = 0;
+	    for(int i = 0;i < actions.length;i++)
+		if (enabled[i])
+		    res[pos++] = areaActions[i];
+	    lastAreaActions = res;
+	    return res;
 	}
 	public boolean handle(String actionName)
 	{
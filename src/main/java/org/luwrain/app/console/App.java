@@ -39,6 +39,7 @@ public final class App extends AppBase<Strings> implements MonoApp
 	this.mainLayout = new MainLayout(this);
 	this.commands = new ConsoleCommand[]{
 	    new Commands.Prop(getLuwrain()),
+	    new Commands.Stat(getLuwrain()),
 	};
 	setAppName(getStrings().appName());
 	return mainLayout.getLayout();
@@ -62,4 +62,32 @@ final class Commands
 	    return true;
 	}
     }
+
+    static final class Stat implements ConsoleCommand
+    {
+	private final Luwrain luwrain;
+	Stat(Luwrain luwrain)
+	{
+	    NullCheck.notNull(luwrain, "luwrain");
+	    this.luwrain = luwrain;
+	}
+	@Override public boolean onCommand(String text, List<Object> messages)
+	{
+	    NullCheck.notEmpty(text, "text");
+	    NullCheck.notNull(messages, "messages");
+	    if (!Utils.firstWord(text).equals("stat"))
+		return false;
+	    final int pos = text.indexOf(" ");
+	    final String arg = pos >= 0?text.substring(pos).trim():"";
+	    final String value = luwrain.getProperty("luwrain." + (!arg.isEmpty()?arg:"events") + ".stat");
+	    if (value.isEmpty())
+	    {
+		messages.add("stat: no statistics for " + (!arg.isEmpty()?arg:"events"));
+		return true;
+	    }
+	    for(String line: value.split("\n", -1))
+		messages.add(line);
+	    return true;
+	}
+    }
 }
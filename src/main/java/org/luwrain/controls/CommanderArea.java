@@ -311,7 +311,15 @@ protected Wrapper<E> getSelectedWrapper()
 		    throw new RuntimeException(e);
 		}
 	    }, null);
-	context.executeBkg(task);
+	try {
+	    context.executeBkg(task);
+	}
+	catch(RejectedExecutionException e)
+	{
+	    //The details are already logged by the core
+	    context.message(context.getStaticStr("BkgTaskRejected"), Luwrain.MessageType.ERROR);
+	    return false;
+	}
 	return true;
     }
 
@@ -131,6 +131,7 @@ public class ConsoleArea<E> extends NavigationArea implements  EmbeddedEditLines
     public void refresh()
     {
 	edit.setNewOffset(enteringPrefix.length(), getEnteringLineIndex());
+	contentVersion.changed();
 	context.onAreaNewContent(this);
 	if (getHotPointY() >= getLineCount())
 	    setHotPointY(getLineCount() - 1);
@@ -0,0 +1,88 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+//LWR_API 1.0
+
+package org.luwrain.controls;
+
+import org.luwrain.core.*;
+import org.luwrain.core.VersionedArea.ChangedLines;
+
+/**
+ * The content version of the area with the history of the last changes,
+ * suitable for implementing {@link VersionedArea}. Every registered change
+ * increases the version by one. The changes are registered in the UI
+ * thread, but the version may be read from any thread.
+ */
+public final class ContentVersion
+{
+    static private final int HISTORY_SIZE = 32;
+
+    private long version = 0;
+    //The change making the version i is kept at the position i % HISTORY_SIZE
+    private final int[] fromLines = new int[HISTORY_SIZE];
+    private final int[] toLines = new int[HISTORY_SIZE];
+
+    //Registers the change of unknown lines
+    public synchronized void changed()
+    {
+	changed(0, VersionedArea.END);
+    }
+
+    /**
+     * Registers the change of the range of lines.
+     *
+     * @param fromLine The index of the first changed line
+     * @param toLine The index of the line after the last changed one, or {@code VersionedArea.END} if the following lines are shifted
+     */
+    public synchronized void changed(int fromLine, int toLine)
+    {
+	if (fromLine < 0)
+	    throw new IllegalArgumentException("fromLine (" + fromLine + ") may not be negative");
+	if (toLine < fromLine)
+	    throw new IllegalArgumentException("toLine (" + toLine + ") may not be less than fromLine (" + fromLine + ")");
+	version++;
+	final int pos = (int)(version % HISTORY_SIZE);
+	fromLines[pos] = fromLine;
+	toLines[pos] = toLine;
+    }
+
+    public synchronized long get()
+    {
+	return version;
+    }
+
+    //Returns null if the requested version is older than the kept history
+    public synchronized ChangedLines getChangedSince(long sinceVersion)
+    {
+	if (sinceVersion < 0 || sinceVersion > version)
+	    return null;
+	if (sinceVersion == version)
+	    return ChangedLines.NONE;
+	if (version - sinceVersion > HISTORY_SIZE)
+	    return null;
+	int from = Integer.MAX_VALUE, to = 0;
+	for(long v = sinceVersion + 1;v <= version;v++)
+	{
+	    final int pos = (int)(v % HISTORY_SIZE);
+	    from = Math.min(from, fromLines[pos]);
+	    to = Math.max(to, toLines[pos]);
+	}
+	if (from == 0 && to == VersionedArea.END)
+	    return ChangedLines.ALL;
+	return new ChangedLines(from, to);
+    }
+}
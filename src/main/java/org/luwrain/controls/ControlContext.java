@@ -35,6 +35,8 @@ int getAreaVisibleHeight(Area area);
     int getAreaVisibleWidth(Area area);
     void popup(Popup popupObj);
     void runUiSafely(Runnable runnable);
+    <T> java.util.concurrent.CompletableFuture<T> callUiAsync(java.util.concurrent.Callable<T> callable);
+    java.util.concurrent.CompletableFuture<Object[]> callUiAsync(java.util.concurrent.Callable[] callables);
     String staticStr(org.luwrain.i18n.LangStatic id);
     String getStaticStr(String id);
     void playSound(Sounds sound);
@@ -174,4 +174,16 @@ public class DefaultControlContext implements ControlContext
 	NullCheck.notNull(runnable, "runnable");
 	luwrain.runUiSafely(runnable);
     }
+
+    @Override public <T> java.util.concurrent.CompletableFuture<T> callUiAsync(java.util.concurrent.Callable<T> callable)
+    {
+	NullCheck.notNull(callable, "callable");
+	return luwrain.callUiAsync(callable);
+    }
+
+    @Override public java.util.concurrent.CompletableFuture<Object[]> callUiAsync(java.util.concurrent.Callable[] callables)
+    {
+	NullCheck.notNullItems(callables, "callables");
+	return luwrain.callUiAsync(callables);
+    }
 }
@@ -153,6 +153,7 @@ this.changeListeners.addAll(listeners);
 	if (index < 0)
 	    throw new IllegalArgumentException("index (" + index + ") may not be negative");
 	content.setLine(index, line);
+	contentVersion.changed(index, index + 1);
 	context.onAreaNewContent(this);
     }
 
@@ -189,6 +190,7 @@ this.changeListeners.addAll(listeners);
     {
 	NullCheck.notNullItems(lines, "lines");
 	content.setLines(lines);
+	contentVersion.changed();
 	context.onAreaNewContent(this);
 	setHotPoint(getHotPointX(), getHotPointY());
     }
@@ -209,6 +211,7 @@ return true;
     public void clear()
     {
 	content.clear();
+	contentVersion.changed();
 	context.onAreaNewContent(this);
 	setHotPoint(0, 0);
     }
@@ -233,11 +236,7 @@ return true;
 		    return true;
 	if (edit.onInputEvent(event))
 	{
-	    if (translator.commit())
-	    {
-		refresh();
-		notifyChangeListeners();
-	    }
+	    commitEdit();
 	    return true;
 	}
 	return super.onInputEvent(event);
@@ -248,11 +247,7 @@ return true;
 	NullCheck.notNull(event, "event");
 	if (edit.onSystemEvent(event))
 	{
-	    if (translator.commit())
-	    {
-		refresh();
-		notifyChangeListeners();
-	    }
+	    commitEdit();
 	    return true;
 	}
 	return super.onSystemEvent(event);
@@ -282,6 +277,24 @@ return true;
 	return "\t";
     }
 
+    //Refreshes the area, registering only the lines touched by the edit
+    protected void commitEdit()
+    {
+	final int fromLine = translator.getChangedFromLine(), toLine = translator.getChangedToLine();
+	if (!translator.commit())
+	    return;
+	if (fromLine >= 0 && toLine >= fromLine)
+	    setRedrawRange(fromLine, toLine);
+	try {
+	    refresh();
+	}
+	finally {
+	    //The overridden refresh() may not call redraw()
+	    resetRedrawRange();
+	}
+	notifyChangeListeners();
+    }
+
     protected void notifyChangeListeners()
     {
 	for(ChangeListener l: this.changeListeners)
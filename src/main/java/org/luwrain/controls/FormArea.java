@@ -98,6 +98,7 @@ public class FormArea  extends NavigationArea
 	multilineEditCaption = "";
 	mlEdit = null;
 	multilineEditEnabled = true;
+	contentVersion.changed();
 	context.onAreaNewContent(this);
 	setHotPoint(0, 0);
     }
@@ -189,6 +190,7 @@ public class FormArea  extends NavigationArea
 					       items.size()); //offsetY
 	items.add(item);
 	updateItems();
+	contentVersion.changed();
 	context.onAreaNewContent(this);
 	context.onAreaNewHotPoint(this);
 	return true;
@@ -215,6 +217,7 @@ public class FormArea  extends NavigationArea
 					       items.size()); //offsetY
 	items.add(item);
 	updateItems();
+	contentVersion.changed();
 	context.onAreaNewContent(this);
 	context.onAreaNewHotPoint(this);
 	return true;
@@ -230,6 +233,7 @@ public class FormArea  extends NavigationArea
 	for(Item i: items)
 	    if (i.type == Type.EDIT && i.name.equals(itemName))
 		i.enteredText = newText;
+	contentVersion.changed();
 	context.onAreaNewContent(this);
 	//FIXME:Check if the old hot point position is still valid
     }
@@ -271,6 +275,7 @@ public class FormArea  extends NavigationArea
 	item.enabled = enabled;
 	items.add(item);
 	updateItems();
+	contentVersion.changed();
 	context.onAreaNewContent(this);
 	context.onAreaNewHotPoint(this);
 	return true;
@@ -314,6 +319,7 @@ public class FormArea  extends NavigationArea
 	item.enabled = enabled;
 	items.add(item);
 	updateItems();
+	contentVersion.changed();
 	context.onAreaNewContent(this);
 	context.onAreaNewHotPoint(this);
 	return true;
@@ -344,6 +350,7 @@ public class FormArea  extends NavigationArea
 	item.enabled = enabled;
 	items.add(item);
 	updateItems();
+	contentVersion.changed();
 	context.onAreaNewContent(this);
 	context.onAreaNewHotPoint(this);
 	return true;
@@ -378,6 +385,7 @@ public class FormArea  extends NavigationArea
 	    item.obj = obj;
 	    items.add(item);
 	    updateItems();
+	contentVersion.changed();
 	context.onAreaNewContent(this);
 	context.onAreaNewHotPoint(this);
 	return true;
@@ -421,6 +429,7 @@ public class FormArea  extends NavigationArea
 	params.model = new EditUtils.CorrectorChangeListener(new MultilineEditTranslator(lines, mlEditHotPoint)){
 		@Override public void onMultilineEditChange()
 		{
+		    contentVersion.changed();
 		    context.onAreaNewContent(FormArea.this);
 		    context.onAreaNewHotPoint(FormArea.this);
 		}
@@ -442,6 +451,7 @@ public class FormArea  extends NavigationArea
 	this.mlEdit = new MultilineEdit(params);
 	multilineEditEnabled = enabled;
 	updateItems();
+	contentVersion.changed();
 	context.onAreaNewContent(this);
 	context.onAreaNewHotPoint(this);
 	return true;
@@ -528,6 +538,7 @@ final int count = mlEditContent.getLineCount();
 	    return false;
 	items.remove(index);
 	updateItems();
+	contentVersion.changed();
 	context.onAreaNewContent(this);
 	context.onAreaNewHotPoint(this);
 	return true;
@@ -543,6 +554,7 @@ final int count = mlEditContent.getLineCount();
 	    {
 		items.remove(i);
 		updateItems();
+		contentVersion.changed();
 		context.onAreaNewContent(this);
 		context.onAreaNewHotPoint(this);
 		return true;
@@ -566,6 +578,7 @@ final int count = mlEditContent.getLineCount();
 		items.get(index).type == Type.UNIREF)
 	    {
 		items.get(index).uniRefInfo = null;
+		contentVersion.changed();
 		context.onAreaNewContent(this);
 		return true;
 	    }
@@ -580,6 +593,7 @@ final int count = mlEditContent.getLineCount();
 	    if (newSelectedItem == null)
 		return true;
 	    item.selectedListItem = newSelectedItem;
+	    contentVersion.changed();
 	    context.onAreaNewContent(this);
 	    context.onAreaNewHotPoint(this);
 	    return true;
@@ -597,6 +611,7 @@ final int count = mlEditContent.getLineCount();
 		item.checkboxState = true;
 		context.setEventResponse(text(context.getStaticStr("Yes")));
 	    }
+	    contentVersion.changed();
 	    context.onAreaNewContent(this);
 	    context.onAreaNewHotPoint(this);
 	    return true;
@@ -866,6 +881,7 @@ protected ListChoosing listChoosing;
 	{
 	    //We may skip checking of editPosX and editPosY because there is only one edit to call this method;
 	    enteredText = value != null?value:"";
+	    contentVersion.changed();
 	    context.onAreaNewContent(area);
 	}
     }
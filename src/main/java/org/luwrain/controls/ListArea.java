@@ -26,7 +26,7 @@ import org.luwrain.core.events.*;
 import org.luwrain.core.queries.*;
 import org.luwrain.util.*;
 
-public class ListArea<E>  implements Area, ClipboardTranslator.Provider, RegionTextQueryTranslator.Provider
+public class ListArea<E>  implements Area, RepeatedInputArea, VersionedArea, ClipboardTranslator.Provider, RegionTextQueryTranslator.Provider
 {
     public enum Flags {
 	EMPTY_LINE_TOP,
@@ -109,6 +109,7 @@ public interface ClipboardSaver<E>
     protected final ClipboardTranslator clipboardTranslator = new ClipboardTranslator(this, regionPoint, EnumSet.of(ClipboardTranslator.Flags.ALLOWED_EMPTY, ClipboardTranslator.Flags.ALLOWED_WITHOUT_REGION_POINT));
     protected final RegionTextQueryTranslator regionTextQueryTranslator = new RegionTextQueryTranslator(this, regionPoint, EnumSet.noneOf(RegionTextQueryTranslator.Flags.class));
     protected String areaName = "";
+    protected final ContentVersion contentVersion = new ContentVersion();
     protected final Model<E> listModel;
     protected final Appearance<E> listAppearance;
     protected final Transition listTransition;
@@ -357,6 +358,7 @@ public interface ClipboardSaver<E>
     {
 	final E previouslySelected = selected();
 	listModel.refresh();
+	contentVersion.changed();
 	context.onAreaNewContent(this);
 	final int count = listModel.getItemCount();
 	if (count == 0)
@@ -387,6 +389,7 @@ public interface ClipboardSaver<E>
     public void redraw()
     {
 	final E previouslySelected = selected();
+	contentVersion.changed();
 	context.onAreaNewContent(this);
 	final int count = listModel.getItemCount();
 	if (count == 0)
@@ -467,6 +470,71 @@ public interface ClipboardSaver<E>
 	}
     }
 
+    /**
+     * Processes a run of the same navigation keystroke. For the vertical
+     * navigation the hot point is moved silently for all repetitions except
+     * the last one, which is processed as a usual input event and makes the
+     * announcement. The rest of the keystrokes get every repetition
+     * through {@code onInputEvent()}, as well as all keystrokes of the
+     * subclasses, which haven't allowed the silent repetition with
+     * {@link #isSilentRepeatAllowed()}.
+     */
+    @Override public boolean onRepeatedInputEvent(InputEvent event, int repeatCount)
+    {
+	NullCheck.notNull(event, "event");
+	final Transition.Type type = getSilentTransition(event);
+	if (type == null || !isSilentRepeatAllowed())
+	{
+	    for(int i = 0;i < repeatCount;i++)
+		if (!onInputEvent(event))
+		    return i > 0;
+	    return true;
+	}
+	if (!noContent())
+	    for(int i = 0;i < repeatCount - 1;i++)
+		if (!moveHotPointY(type))
+		    break;
+	return onInputEvent(event);
+    }
+
+    //Returns null, if the keystroke can't be repeated silently
+    static private Transition.Type getSilentTransition(InputEvent event)
+    {
+	if (!event.isSpecial() || event.isModified())
+	    return null;
+	switch(event.getSpecial())
+	{
+	case ARROW_DOWN:
+	case ALTERNATIVE_ARROW_DOWN:
+	    return Transition.Type.SINGLE_DOWN;
+	case ARROW_UP:
+	case ALTERNATIVE_ARROW_UP:
+	    return Transition.Type.SINGLE_UP;
+	case PAGE_DOWN:
+	case ALTERNATIVE_PAGE_DOWN:
+	    return Transition.Type.PAGE_DOWN;
+	case PAGE_UP:
+	case ALTERNATIVE_PAGE_UP:
+	    return Transition.Type.PAGE_UP;
+	default:
+	    return null;
+	}
+    }
+
+    /**
+     * Checks if the repeated vertical navigation may move the hot point
+     * without calling {@code onInputEvent()} for every repetition. Only
+     * the instances of {@code ListArea} itself allow it by default; the
+     * subclasses, which don't process the navigation keystrokes
+     * themselves, may override this method to return true.
+     *
+     * @return True if the repeated navigation may be processed silently
+     */
+    protected boolean isSilentRepeatAllowed()
+    {
+	return getClass() == ListArea.class;
+    }
+
     @Override public boolean onSystemEvent(SystemEvent event)
     {
 	NullCheck.notNull(event, "event");
@@ -548,6 +616,16 @@ public interface ClipboardSaver<E>
 	return hotPointY >= 0?hotPointY:0;
     }
 
+    @Override public long getContentVersion()
+    {
+	return contentVersion.get();
+    }
+
+    @Override public ChangedLines getChangedLines(long sinceVersion)
+    {
+	return contentVersion.getChangedSince(sinceVersion);
+    }
+
     @Override public String getAreaName()
     {
 	NullCheck.notNull(areaName, "areaName");
@@ -752,6 +830,31 @@ final int rightBound = listAppearance.getObservableRightBound(item);
 	NullCheck.notNull(hint, "hint");
 	if (noContent())
 	    return true;
+	final Transition.State newState = getTransitionState(type);
+	if (newState == null)
+	    return false;
+	if (newState.type == Transition.State.Type.NO_TRANSITION)
+	{
+	    context.setEventResponse(DefaultEventResponse.hint(hint));
+	    return true;
+	}
+	if (!applyTransitionState(newState))
+	    return false;
+	onNewHotPointY(briefAnnouncement);
+	return true;
+    }
+
+    //Moves the hot point without any announcements, returns false if there is no transition
+    private boolean moveHotPointY(Transition.Type type)
+    {
+	final Transition.State newState = getTransitionState(type);
+	if (newState == null || newState.type == Transition.State.Type.NO_TRANSITION)
+	    return false;
+	return applyTransitionState(newState);
+    }
+
+    private Transition.State getTransitionState(Transition.Type type)
+    {
 	final int index = selectedIndex();
 	final int count = listModel.getItemCount();
 	final int emptyCountTop = listFlags.contains(Flags.EMPTY_LINE_TOP)?1:0;
@@ -762,35 +865,37 @@ final int rightBound = listAppearance.getObservableRightBound(item);
 		current = new Transition.State(Transition.State.Type.EMPTY_LINE_TOP); else
 		if (listFlags.contains(Flags.EMPTY_LINE_BOTTOM) && hotPointY == count + emptyCountTop)
 		    current = new Transition.State(Transition.State.Type.EMPTY_LINE_BOTTOM); else
-		    return false;
+		    return null;
 	final Transition.State newState = listTransition.transition(type, current, count,
 								    listFlags.contains(Flags.EMPTY_LINE_TOP), listFlags.contains(Flags.EMPTY_LINE_BOTTOM));
 	NullCheck.notNull(newState, "newState");
+	return newState;
+    }
+
+    private boolean applyTransitionState(Transition.State newState)
+    {
+	final int count = listModel.getItemCount();
+	final int emptyCountTop = listFlags.contains(Flags.EMPTY_LINE_TOP)?1:0;
 	switch(newState.type)
 	{
-	case NO_TRANSITION:
-	    context.setEventResponse(DefaultEventResponse.hint(hint));
-	    return true;
 	case EMPTY_LINE_TOP:
 	    if (!listFlags.contains(Flags.EMPTY_LINE_TOP))
 		return false;
 	    hotPointY = 0;
-	    break;
+	    return true;
 	case EMPTY_LINE_BOTTOM:
 	    if (!listFlags.contains(Flags.EMPTY_LINE_BOTTOM))
 		return false;
 	    hotPointY = count + emptyCountTop;
-	    break;
+	    return true;
 	case ITEM_INDEX:
 	    if (newState.itemIndex < 0 || newState.itemIndex >= count)
 		return false;
 	    hotPointY = newState.itemIndex + emptyCountTop;
-	    break;
+	    return true;
 	default:
 	    return false;
 	}
-	onNewHotPointY(briefAnnouncement);
-	return true;
     }
 
 protected boolean onMoveRight(InputEvent event)
@@ -64,6 +64,7 @@ public class MarkableListArea extends ListArea<Object>
 	    {
 	    case ' ':
 		regionPoint.reset();
+		contentVersion.changed();
 		context.onAreaNewContent(this);
 		return onToggleMark();
 	    }
@@ -79,6 +80,7 @@ public class MarkableListArea extends ListArea<Object>
 	{
 	case REGION_POINT:
 	    marksInfo.clearMarks();
+	    contentVersion.changed();
 	    context.onAreaNewContent(this);
 	    return super.onSystemEvent(event);
 	default:
@@ -93,6 +95,7 @@ public class MarkableListArea extends ListArea<Object>
 	    return false;
 	final boolean newState = marksInfo.toggleMark(selected);
 	context.say(newState?"Отмечено":"Не отмечено");//fixme:
+	contentVersion.changed();
 	context.onAreaNewContent(this);
 	return true;
     }
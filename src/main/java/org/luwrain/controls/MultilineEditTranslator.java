@@ -32,6 +32,8 @@ public class MultilineEditTranslator implements MultilineEditCorrector
     protected final HotPointControl hotPoint;
     protected String tabSeq = "\t";
     protected boolean hasChanges = false;
+    //The lines changed since the last commit, -1 if nothing has changed
+    protected int changedFromLine = -1, changedToLine = -1;
 
     public MultilineEditTranslator(MutableLines lines, HotPointControl hotPoint)
     {
@@ -66,6 +68,7 @@ public class MultilineEditTranslator implements MultilineEditCorrector
 	    throw new IllegalArgumentException("pos (" + pos + ") must be less than the length of the line (" + line.length() + ")");
 	beginEditTrans();
 	lines.setLine(lineIndex, line.substring(0, pos) + line.substring(pos + 1));
+	onChangedLines(lineIndex, lineIndex + 1);
 	if (hotPoint.getHotPointY() == lineIndex && hotPoint.getHotPointX() > pos)
 	    hotPoint.setHotPointX(hotPoint.getHotPointX() - 1);
 	endEditTrans(true);
@@ -92,6 +95,7 @@ public class MultilineEditTranslator implements MultilineEditCorrector
 		return new ModificationResult(false);
 	    beginEditTrans();
 	    lines.setLine(fromY, line.substring(0, fromPos) + line.substring(toPos));
+	    onChangedLines(fromY, fromY + 1);
 	    if (hotPoint.getHotPointY() == fromY)
 	    {
 		if (hotPoint.getHotPointX() >= fromPos && hotPoint.getHotPointX() < toPos)
@@ -112,6 +116,7 @@ public class MultilineEditTranslator implements MultilineEditCorrector
 	lines.setLine(fromY, firstLine.substring(0, fromPos) + endingLine.substring(toPos));
 	for(int i = fromY + 1;i <= toY;++i)
 	    lines.removeLine(fromY + 1);
+	onChangedLines(fromY, VersionedArea.END);
 	if ((hotPoint.getHotPointY() == fromY && hotPoint.getHotPointX() >= fromPos) ||
 	    (hotPoint.getHotPointY() > fromY && hotPoint.getHotPointY() < toY) ||
 	    (hotPoint.getHotPointY() == toY && hotPoint.getHotPointX() < toX))
@@ -144,6 +149,7 @@ public class MultilineEditTranslator implements MultilineEditCorrector
 	    beginEditTrans();
 	    for(int i = 0;i < text.length;++i)
 		lines.addLine(text[i]);
+	    onChangedLines(0, VersionedArea.END);
 	    hotPoint.setHotPointX(text[text.length - 1].length());
 	    hotPoint.setHotPointY(lines.getLineCount() - 1);
 	    endEditTrans(false);
@@ -157,6 +163,7 @@ public class MultilineEditTranslator implements MultilineEditCorrector
 	    final boolean needToMoveHotPoint = (hotPoint.getHotPointY() == y && x <= hotPoint.getHotPointX());
 	    beginEditTrans();
 	    lines.setLine(y, line.substring(0, x) + firstLine + line.substring(x));
+	    onChangedLines(y, y + 1);
 	    if (needToMoveHotPoint)
 		hotPoint.setHotPointX(hotPoint.getHotPointX() + firstLine.length());
 	    endEditTrans(false);
@@ -169,6 +176,7 @@ public class MultilineEditTranslator implements MultilineEditCorrector
 	for(int i = 1;i < text.length - 1;++i)
 	    lines.insertLine(y + i, text[i]);
 	lines.insertLine(y+ text.length - 1, text[text.length - 1] + line.substring(x));
+	onChangedLines(y, VersionedArea.END);
 	if (hotPoint.getHotPointY() > y)
 	    hotPoint.setHotPointY(hotPoint.getHotPointY() + text.length - 1); else
 	    if (hotPoint.getHotPointY() == y && hotPoint.getHotPointX() >= x)
@@ -197,6 +205,7 @@ public class MultilineEditTranslator implements MultilineEditCorrector
 	    if (pos > line.length())
 		throw new IllegalArgumentException("pos (" + pos + ") may not be greater than the length of the line (" + line.length() + ")");
 	    lines.setLine(lineIndex, line.substring(0, pos) + str + line.substring(pos));
+	    onChangedLines(lineIndex, lineIndex + 1);
 	    if (hotPoint.getHotPointY() == lineIndex && hotPoint.getHotPointX() >= pos)
 		hotPoint.setHotPointX(hotPoint.getHotPointX() + (str != null?str.length():0));
 	}
@@ -229,6 +238,7 @@ public class MultilineEditTranslator implements MultilineEditCorrector
 	final int origLineLen = firstLine.length();
 	lines.setLine(firstLineIndex, firstLine + lines.getLine(firstLineIndex + 1));
 	lines.removeLine(firstLineIndex + 1);
+	onChangedLines(firstLineIndex, VersionedArea.END);
 	if (hotPoint.getHotPointY() == firstLineIndex + 1)
 	{
 	    hotPoint.setHotPointY(hotPoint.getHotPointY() - 1);
@@ -259,6 +269,7 @@ public class MultilineEditTranslator implements MultilineEditCorrector
 	    lines.setLine(lineIndex, line.substring(0, pos));
 	    newLine = line.substring(pos);
 	    lines.insertLine(lineIndex + 1, newLine);
+	    onChangedLines(lineIndex, VersionedArea.END);
 	    if (hotPoint.getHotPointY() == lineIndex && hotPoint.getHotPointX() >= pos)
 	    {
 		hotPoint.setHotPointY(lineIndex + 1);
@@ -278,17 +289,44 @@ public class MultilineEditTranslator implements MultilineEditCorrector
 	NullCheck.notNull(action, "action");
 		hasChanges = true;
 	action.doTextEdit(lines, hotPoint);
+	onChangedLines(0, VersionedArea.END);
 	return new ModificationResult(true);
     }
 
     public boolean commit()
     {
+	changedFromLine = -1;
+	changedToLine = -1;
 	if (!hasChanges)
 	    return false;
 	hasChanges = false;
 	return true;
     }
 
+    //The index of the first line changed since the last commit, -1 if there were no changes
+    public int getChangedFromLine()
+    {
+	return changedFromLine;
+    }
+
+    //The index of the line after the last changed one, may be VersionedArea.END if the lines were inserted or removed
+    public int getChangedToLine()
+    {
+	return changedToLine;
+    }
+
+    protected void onChangedLines(int fromLine, int toLine)
+    {
+	if (changedFromLine < 0)
+	{
+	    changedFromLine = fromLine;
+	    changedToLine = toLine;
+	    return;
+	}
+	changedFromLine = Math.min(changedFromLine, fromLine);
+	changedToLine = Math.max(changedToLine, toLine);
+    }
+
     @Override public int getLineCount()
     {
 	final int count = lines.getLineCount();
@@ -39,7 +39,7 @@ import static org.luwrain.core.DefaultEventResponse.*;
  *
  * @see SimpleArea
  */
-public abstract class NavigationArea implements Area, HotPointControl, ClipboardTranslator.Provider, RegionTextQueryTranslator.Provider
+public abstract class NavigationArea implements Area, RepeatedInputArea, VersionedArea, HotPointControl, ClipboardTranslator.Provider, RegionTextQueryTranslator.Provider
 {
     static final String LOG_COMPONENT = "core";
     
@@ -50,6 +50,9 @@ public abstract class NavigationArea implements Area, HotPointControl, Clipboard
     protected final RegionTextQueryTranslator regionTextQueryTranslator = new RegionTextQueryTranslator(this, regionPoint, EnumSet.noneOf(RegionTextQueryTranslator.Flags.class));
     protected int hotPointX = 0;
     protected int hotPointY = 0;
+    protected final ContentVersion contentVersion = new ContentVersion();
+    //The range registered by the next redraw(), -1 if the changed lines are unknown
+    private int redrawFromLine = -1, redrawToLine = -1;
 
     public NavigationArea(ControlContext context)
     {
@@ -92,6 +95,21 @@ public abstract class NavigationArea implements Area, HotPointControl, Clipboard
 	return false;
     }
 
+    /**
+     * Processes a run of the same keystroke. The navigation operations
+     * announce the new position through the event response, so repeating
+     * them in the scope of one event results in the announcement of the
+     * final position only.
+     */
+    @Override public boolean onRepeatedInputEvent(InputEvent event, int repeatCount)
+    {
+	NullCheck.notNull(event, "event");
+	for(int i = 0;i < repeatCount;i++)
+	    if (!onInputEvent(event))
+		return i > 0;
+	return true;
+    }
+
     @Override public boolean onSystemEvent(SystemEvent event)
     {
 	NullCheck.notNull(event, "event");
@@ -445,6 +463,46 @@ public abstract class NavigationArea implements Area, HotPointControl, Clipboard
      * Redraws content and updates hot point position.
      */
     public void redraw()
+    {
+	if (redrawFromLine >= 0)
+	    contentVersion.changed(redrawFromLine, redrawToLine); else
+	    contentVersion.changed();
+	redrawFromLine = -1;
+	redrawToLine = -1;
+	updateContent();
+    }
+
+    /**
+     * Narrows the change registered by the next {@code redraw()} to the
+     * given range of lines. The range must be reset with
+     * {@code resetRedrawRange()} if {@code redraw()} may be not called.
+     *
+     * @param fromLine The index of the first changed line
+     * @param toLine The index of the line after the last changed one, or {@code VersionedArea.END}
+     */
+    protected void setRedrawRange(int fromLine, int toLine)
+    {
+	if (fromLine < 0)
+	    throw new IllegalArgumentException("fromLine (" + fromLine + ") may not be negative");
+	if (toLine < fromLine)
+	    throw new IllegalArgumentException("toLine (" + toLine + ") may not be less than fromLine (" + fromLine + ")");
+	this.redrawFromLine = fromLine;
+	this.redrawToLine = toLine;
+    }
+
+    protected void resetRedrawRange()
+    {
+	this.redrawFromLine = -1;
+	this.redrawToLine = -1;
+    }
+
+    /**
+     * Notifies the core about the new content and updates hot point
+     * position. Unlike {@code redraw()}, doesn't change the content
+     * version, so the change must be already registered in
+     * {@code contentVersion}.
+     */
+    protected void updateContent()
     {
 	context.onAreaNewContent(this);
 	final int lineCount = getValidLineCount();
@@ -465,6 +523,16 @@ public abstract class NavigationArea implements Area, HotPointControl, Clipboard
 	}
     }
 
+    @Override public long getContentVersion()
+    {
+	return contentVersion.get();
+    }
+
+    @Override public ChangedLines getChangedLines(long sinceVersion)
+    {
+	return contentVersion.getChangedSince(sinceVersion);
+    }
+
     @Override public void beginHotPointTrans()
     {
 	//FIXME:
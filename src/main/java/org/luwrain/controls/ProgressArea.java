@@ -48,6 +48,7 @@ public class ProgressArea extends SimpleArea
 	    content.addLine("");
 	} else
 	    addLine(line);
+	contentVersion.changed();
 	environment.onAreaNewContent(this);
     }
 }
@@ -163,6 +163,7 @@ public class SimpleArea extends NavigationArea implements MutableLines
 
     private void afterChange()
     {
+	contentVersion.changed();
 	environment.onAreaNewContent(this);
     }
 }
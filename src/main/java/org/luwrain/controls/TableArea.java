@@ -31,7 +31,7 @@ import org.luwrain.i18n.LangStatic;//FIXME:deleting
  * appearance of table content through extending the TableAppearance
  * interface.
  */
-public class TableArea  implements Area
+public class TableArea  implements Area, VersionedArea
 {
     static final public int INTRODUCTION_BRIEF = 1;
 
@@ -55,6 +55,7 @@ int getColWidth(TableArea.Model model, int  colIndex);
 }
 
     protected final ControlContext environment;
+    protected final ContentVersion contentVersion = new ContentVersion();
     protected final RegionPoint regionPoint = new RegionPoint();
     protected final ClipboardTranslator clipboardTranslator;
     protected String name = "";
@@ -136,6 +137,7 @@ int getColWidth(TableArea.Model model, int  colIndex);
 	    cellShift = 0;
 	    hotPointX = 0;
 	    hotPointY = 0;
+	    contentVersion.changed();
 	    environment.onAreaNewContent(this);
 	    environment.onAreaNewHotPoint(this);
 	    return;
@@ -150,6 +152,7 @@ int getColWidth(TableArea.Model model, int  colIndex);
 	    cellShift = 0;
 	    hotPointX = 0;
 	    hotPointY = 0;
+	    contentVersion.changed();
 	    environment.onAreaNewContent(this);
 	    environment.onAreaNewHotPoint(this);
 	    return;
@@ -169,6 +172,7 @@ int getColWidth(TableArea.Model model, int  colIndex);
 	    hotPointX = totalWidth - 1; //totalWidth may not be zero as always we have at least one column here;
 	if (hotPointY == rowCount)
 	    hotPointX = 0;
+	contentVersion.changed();
 	environment.onAreaNewContent(this);
 	environment.onAreaNewHotPoint(this);
     }
@@ -326,6 +330,16 @@ int getColWidth(TableArea.Model model, int  colIndex);
 	return hotPointY >= 0?hotPointY:0;
     }
 
+    @Override public long getContentVersion()
+    {
+	return contentVersion.get();
+    }
+
+    @Override public ChangedLines getChangedLines(long sinceVersion)
+    {
+	return contentVersion.getChangedSince(sinceVersion);
+    }
+
     @Override public String getAreaName()
     {
 	return name;
@@ -456,6 +470,7 @@ int getColWidth(TableArea.Model model, int  colIndex);
 	    if (!nextColText.isEmpty())
 		environment.sayLetter(nextColText.charAt(0)); else
 		environment.setEventResponse(DefaultEventResponse.hint(currentCol + 2 < colWidth.length?Hint.TABLE_END_OF_COL:Hint.TABLE_END_OF_ROW));
+	    contentVersion.changed(hotPointY, hotPointY + 1);
 	    environment.onAreaNewContent(this);
 	    environment.onAreaNewHotPoint(this);
 	    return true;
@@ -465,6 +480,7 @@ int getColWidth(TableArea.Model model, int  colIndex);
 	if (c.pos + c.shift >= c.line.length())
 	    environment.setEventResponse(DefaultEventResponse.hint(currentCol + 1 < colWidth.length?Hint.TABLE_END_OF_COL:Hint.TABLE_END_OF_ROW)); else
 	    environment.sayLetter(c.line.charAt(c.pos + c.shift));
+	contentVersion.changed(hotPointY, hotPointY + 1);
 	environment.onAreaNewContent(this);
 	environment.onAreaNewHotPoint(this);
 		    return true;
@@ -508,6 +524,7 @@ int getColWidth(TableArea.Model model, int  colIndex);
 		hotPointX = prevColStartPos + prevColText.length();
 	    }
 	    environment.setEventResponse(DefaultEventResponse.hint(Hint.TABLE_END_OF_COL));
+	    contentVersion.changed(hotPointY, hotPointY + 1);
 	    environment.onAreaNewContent(this);
 	    environment.onAreaNewHotPoint(this);
 	    return true;
@@ -517,6 +534,7 @@ int getColWidth(TableArea.Model model, int  colIndex);
 	if (c.pos == c.width)//Should never happen;
 	    environment.setEventResponse(DefaultEventResponse.hint(Hint.TABLE_END_OF_COL)); else
 	    environment.sayLetter(c.line.charAt(c.pos + c.shift));
+	contentVersion.changed(hotPointY, hotPointY + 1);
 	environment.onAreaNewContent(this);
 	environment.onAreaNewHotPoint(this);
 		    return true;
@@ -161,4 +161,14 @@ public class WrappingControlContext implements ControlContext
     {
 	context.runUiSafely(runnable);
     }
+
+    @Override public <T> java.util.concurrent.CompletableFuture<T> callUiAsync(java.util.concurrent.Callable<T> callable)
+    {
+	return context.callUiAsync(callable);
+    }
+
+    @Override public java.util.concurrent.CompletableFuture<Object[]> callUiAsync(java.util.concurrent.Callable[] callables)
+    {
+	return context.callUiAsync(callables);
+    }
 }
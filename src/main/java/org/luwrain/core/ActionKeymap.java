@@ -0,0 +1,81 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import java.util.*;
+
+import org.luwrain.core.events.*;
+
+/**
+ * The hashed map of the actions of the area by their input events. The
+ * map is built for the array returned by {@code getAreaActions()} and
+ * reused while the area returns the same array instance, so the areas
+ * with the stable arrays of actions get the action of the keystroke with
+ * a single lookup. Only the map of the last area is kept, since the
+ * keystrokes go to the same active area most of the time. Must be used
+ * in the main thread only.
+ */
+final class ActionKeymap
+{
+    private Area area = null;
+    private Action[] actions = null;
+    private final Map<InputEvent, Action> keymap = new HashMap<>();
+
+    /**
+     * Finds the action bound to the input event. If several actions are
+     * bound to the same event, the first one is returned.
+     *
+     * @param area The area the actions belong to
+     * @param actions The actions returned by the area, may be null
+     * @param event The input event to find the action for
+     * @return The found action or null, if there is no such action
+     */
+    Action find(Area area, Action[] actions, InputEvent event)
+    {
+	NullCheck.notNull(area, "area");
+	NullCheck.notNull(event, "event");
+	if (actions == null || actions.length == 0)
+	    return null;
+	if (area != this.area || actions != this.actions)
+	    rebuild(area, actions);
+	return keymap.get(event);
+    }
+
+    //Drops the references to the area and its actions, e.g. when the area is closed
+    void clear()
+    {
+	this.area = null;
+	this.actions = null;
+	keymap.clear();
+    }
+
+    private void rebuild(Area area, Action[] actions)
+    {
+	keymap.clear();
+	for(Action a: actions)
+	{
+	    if (a == null)
+		continue;
+	    final InputEvent event = a.inputEvent();
+	    if (event == null)
+		continue;
+	    keymap.putIfAbsent(event, a);
+	}
+	this.area = area;
+	this.actions = actions;
+    }
+}
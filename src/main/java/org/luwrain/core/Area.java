@@ -85,5 +85,6 @@ public interface Area extends Lines, HotPoint
     boolean onInputEvent(InputEvent event);
     boolean onSystemEvent(SystemEvent event);
     boolean onAreaQuery(AreaQuery areaQuery);
+    //The returned array may be shared between the calls and must not be modified
     Action[] getAreaActions();
 }
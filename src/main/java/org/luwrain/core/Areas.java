@@ -40,10 +40,16 @@ abstract class Areas extends Base
     void onNewAreasLayout()
     {
 	screenContentManager.updatePopupState();
-	windowManager.redraw();
+	screenContentManager.invalidateWindows();
+	windowManager.requestRedraw();
 	updateBackgroundSound(null);
     }
 
+    @Override protected void flushRedraw()
+    {
+	windowManager.flushRequests();
+    }
+
     protected void updateBackgroundSound(Area updateFor)
     {
 	final Area area = getActiveArea(false);
@@ -47,6 +47,7 @@ abstract class Base implements EventConsumer
     protected final String lang;
 
     private final Thread mainCoreThread;
+    final StallWatchdog watchdog;
     protected final InterfaceManager interfaces = new InterfaceManager(this);
     final ExtensionsManager extensions = new ExtensionsManager(interfaces);
          final ObjRegistry objRegistry = new ObjRegistry();
@@ -54,14 +55,18 @@ abstract class Base implements EventConsumer
     protected final EventQueue eventQueue = new EventQueue();
     protected final MainStopCondition mainStopCondition = new MainStopCondition();
     private EventResponse eventResponse = null;
+    final EventLoopStat eventStat = new EventLoopStat();
 
     protected final WorkersTracking workers = new WorkersTracking();
+    final BkgExecutor bkg = new BkgExecutor();
     final JobsTracking jobs = new JobsTracking(getObjForEnvironment(), objRegistry);
     protected final I18nImpl i18n = new I18nImpl();
     final Speech speech;
     final org.luwrain.core.speech.SpeakingText speakingText = new org.luwrain.core.speech.SpeakingText(extensions);
     final BrailleImpl braille = new BrailleImpl();
     protected final org.luwrain.core.sound.SoundIcons sounds;
+    //The volume of the sound icons at the last playing in the main thread
+    private volatile int iconsVolume = 100;
     protected final org.luwrain.core.sound.Manager soundManager;
 
     final FileTypes fileTypes = new FileTypes();
@@ -82,10 +87,11 @@ abstract class Base implements EventConsumer
 	this.props.setLuwrainObj(getObjForEnvironment());
 	this.lang = lang;
 	this.helpSects = new HelpSections(registry);
-	this.speech = new Speech(cmdLine, registry);
+	this.speech = new Speech(cmdLine, registry, this);
 	this.sounds = new org.luwrain.core.sound.SoundIcons(registry, props.getFileProperty(Luwrain.PROP_DIR_SOUNDS));
 	this.soundManager = new org.luwrain.core.sound.Manager(objRegistry, getObjForEnvironment());
 	this.mainCoreThread = Thread.currentThread();
+	this.watchdog = new StallWatchdog(this, mainCoreThread);
 	this.luwrain = getObjForEnvironment();
     }
 
@@ -101,38 +107,88 @@ abstract class Base implements EventConsumer
 	NullCheck.notNull(stopCondition, "stopCondition");
 	while(stopCondition.continueEventLoop())
 	{
+	    //The popup opened while processing the input event returns to the same state
+	    final boolean inputEvent = speech.isInputEvent();
 	    try {
 		this.announcement = null;
 		this.eventResponse = null;
+		//Showing everything requested outside of the event processing, e.g. the just opened popup
+		flushRedraw();
+		watchdog.idle();
+		final boolean again = eventQueue.hasAgain();
 		final Event event = eventQueue.takeEvent();
 		if (event == null)
 		    continue;
+		watchdog.begin(event);
+		final long startTime = System.nanoTime();
+		if (!again)
+		    eventStat.onEventWait(event, startTime - event.queuedTime);
+		final boolean traced = isInputEvent(event);
+		if (traced)
+		    speech.latency.begin(event.queuedTime);
+		speech.setInputEvent(traced || event.userCaused);
 		if (!onEvent(event))
 		{
 		    eventQueue.onceAgain(event);
 		    continue;
 		}
 		event.markAsProcessed();
+		final long handledTime = System.nanoTime();
+		eventStat.onEventHandled(event, handledTime - startTime);
+		flushRedraw();
 		if (!eventQueue.hasAgain())
 		{
 		    if (this.eventResponse != null)
 		    {
+			speech.latency.setStage(SpeechLatency.Stage.RESPONSE);
 			processEventResponse(eventResponse);
 			this.eventResponse = null;
+			eventStat.onEventResponse(System.nanoTime() - handledTime);
 		    } else
+		    {
+			speech.latency.setStage(SpeechLatency.Stage.ANNOUNCEMENT);
 			announce(stopCondition);
+			eventStat.onAnnouncement(System.nanoTime() - handledTime);
+		    }
 		}
+		if (traced)
+		    speech.latency.end();
 	    }
 	    catch(Throwable e)
 	    {
 		Log.error(LOG_COMPONENT, "event processing failure: " + e.getClass().getName() + ":" + e.getMessage());
 	    }
+	    finally {
+		speech.setInputEvent(inputEvent);
+	    }
 	}
+	watchdog.idle();
+    }
+
+    //The events which are traced for the latency of the speech
+    static private boolean isInputEvent(Event event)
+    {
+	return event instanceof org.luwrain.core.events.InputEvent || event instanceof EventDispatching.PreparedInputEvent;
     }
 
     @Override public void enqueueEvent(Event e)
     {
-	eventQueue.putEvent(e);
+	final Event prepared = prepareEvent(e);
+	//E.g. the commands, which only put the system event to the queue, still respond to the user
+	if (speech.isInputEvent() && isMainCoreThread())
+	    prepared.userCaused = true;
+	eventQueue.putEvent(prepared);
+    }
+
+    //Called after every processed event, performs the repaintings requested by the areas during the processing
+    protected void flushRedraw()
+    {
+    }
+
+    //Called in the thread of the event producer, may replace the event with the prepared one
+    protected Event prepareEvent(Event event)
+    {
+	return event;
     }
 
     public final void playSound(Sounds sound)
@@ -142,26 +198,31 @@ abstract class Base implements EventConsumer
 	    sounds.stop();
 	    return;
 	}
-	final String volumeStr = props.getProperty(PROP_ICONS_VOLUME);
-	int volume = 100;
-	try {
-	    if (!volumeStr.trim().isEmpty())
-	    volume = Integer.parseInt(volumeStr);
-	}
-	catch(NumberFormatException e)
-	{
-	    volume = 100;
-	}
-	if (volume < 0)
-	    volume = 0;
-	if (volume > 100)
-	    volume = 100;
+	final int volume = getIconsVolume();
 	sounds.play(sound, volume);
     }
 
         public final void playSound(File file)
     {
 	NullCheck.notNull(file, "file");
+	final int volume = getIconsVolume();
+	sounds.play(file, volume);
+    }
+
+    /**
+     * Plays the sound in any thread without touching the core state. The
+     * volume is the one used by the last playing in the main thread, and
+     * the sound must be prepared with {@code SoundIcons.prepare()} in the
+     * main thread.
+     */
+    final void playSoundInAnyThread(Sounds sound)
+    {
+	NullCheck.notNull(sound, "sound");
+	sounds.play(sound, iconsVolume);
+    }
+
+    private int getIconsVolume()
+    {
 	final String volumeStr = props.getProperty(PROP_ICONS_VOLUME);
 	int volume = 100;
 	try {
@@ -176,7 +237,8 @@ abstract class Base implements EventConsumer
 	    volume = 0;
 	if (volume > 100)
 	    volume = 100;
-	sounds.play(file, volume);
+	this.iconsVolume = volume;
+	return volume;
     }
 
 
@@ -267,6 +329,7 @@ abstract class Base implements EventConsumer
 	final ScriptExtension ext = new ScriptExtension(scriptFile.toString());
 	ext.init(interfaces.requestNew(ext));
 	final ScriptCore scriptCore = new ScriptCore(ext.getLuwrainObj());
+	scriptCore.setHooksListener(()->extensions.onHooksChanged());
 	ext.setScriptCore(scriptCore);
 	try {
 	    scriptCore.load(scriptFile);
@@ -311,6 +374,7 @@ abstract class Base implements EventConsumer
 	if (ext == null)
 	    return false;
 	objRegistry.deleteByExt(ext.ext);
+	bkg.cancel(ext.luwrain);
 	//FIXME:workers
 	commands.deleteByInstance(ext.luwrain);
 	return extensions.unloadDynamicExtension(ext.ext);
@@ -0,0 +1,330 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * The executor of the background tasks requested through 
+ * {@code Luwrain.executeBkg()}. Every task is associated with the
+ * {@code Luwrain} object which has issued it, so the number of tasks
+ * running concurrently for the same application or extension is
+ * limited, and all tasks of an unloaded extension can be cancelled. The
+ * tasks above the limit wait in the queue of the owner, until this queue
+ * is full too; after that the new tasks are rejected. The limits may be
+ * changed with {@link #setLimits(int,int,int)}. The tasks are executed on
+ * virtual threads, if the JVM supports them, or on a bounded pool of
+ * platform threads otherwise.
+ */
+final class BkgExecutor
+{
+    static private final String LOG_COMPONENT = Base.LOG_COMPONENT;
+    static final int
+	MAX_THREADS = 64,
+	MAX_TASKS_PER_OWNER = 8,
+	MAX_PENDING_PER_OWNER = 256;
+    static final String PROP_STAT = "luwrain.bkg.stat";
+
+    private final ThreadPoolExecutor executor;
+    private final boolean virtualThreads;
+    private final Map<Luwrain, Owner> owners = new HashMap<>();
+    private final Set<Luwrain> cancelledOwners = Collections.newSetFromMap(new WeakHashMap<>());
+    private final AtomicLong
+	submittedCount = new AtomicLong(0),
+	completedCount = new AtomicLong(0),
+	rejectedCount = new AtomicLong(0),
+	totalWaitTime = new AtomicLong(0),
+	maxWaitTime = new AtomicLong(0),
+	totalRunTime = new AtomicLong(0),
+	maxRunTime = new AtomicLong(0);
+    private final AtomicInteger
+	pendingCount = new AtomicInteger(0),
+	runningCount = new AtomicInteger(0);
+    private int maxTasksPerOwner = MAX_TASKS_PER_OWNER;
+    private int maxPendingPerOwner = MAX_PENDING_PER_OWNER;
+
+    BkgExecutor()
+    {
+	final ThreadFactory virtualFactory = createVirtualThreadFactory();
+	this.virtualThreads = virtualFactory != null;
+	final ThreadFactory factory;
+	if (virtualFactory != null)
+	    factory = virtualFactory; else
+	{
+	    final AtomicInteger threadNum = new AtomicInteger(0);
+	    factory = (r)->{
+		final Thread t = new Thread(r, "luwrain-bkg-" + threadNum.incrementAndGet());
+		t.setDaemon(true);
+		return t;
+	    };
+	}
+	this.executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), factory);
+	this.executor.allowCoreThreadTimeOut(true);
+	Log.debug(LOG_COMPONENT, "background tasks are executed on " + (virtualThreads?"virtual":"platform") + " threads");
+    }
+
+    /**
+     * Changes the limits of the number of the tasks. The tasks already
+     * queued are dispatched according to the new limits as the running
+     * ones are finished.
+     *
+     * @param maxThreads The maximum number of the tasks running concurrently for all owners
+     * @param maxTasksPerOwner The maximum number of the tasks running concurrently for the same owner
+     * @param maxPendingPerOwner The maximum number of the queued tasks of the same owner
+     */
+    void setLimits(int maxThreads, int maxTasksPerOwner, int maxPendingPerOwner)
+    {
+	if (maxThreads <= 0)
+	    throw new IllegalArgumentException("maxThreads (" + maxThreads + ") must be greater than zero");
+	if (maxTasksPerOwner <= 0)
+	    throw new IllegalArgumentException("maxTasksPerOwner (" + maxTasksPerOwner + ") must be greater than zero");
+	if (maxPendingPerOwner < 0)
+	    throw new IllegalArgumentException("maxPendingPerOwner (" + maxPendingPerOwner + ") may not be negative");
+	synchronized(this) {
+	    //The order matters, the core pool size may not exceed the maximum one
+	    if (maxThreads > executor.getMaximumPoolSize())
+	    {
+		executor.setMaximumPoolSize(maxThreads);
+		executor.setCorePoolSize(maxThreads);
+	    } else
+	    {
+		executor.setCorePoolSize(maxThreads);
+		executor.setMaximumPoolSize(maxThreads);
+	    }
+	    this.maxTasksPerOwner = maxTasksPerOwner;
+	    this.maxPendingPerOwner = maxPendingPerOwner;
+	}
+	Log.debug(LOG_COMPONENT, "background tasks limits: " + maxThreads + " thread(s), " + maxTasksPerOwner + " running and " + maxPendingPerOwner + " queued task(s) per owner");
+    }
+
+    //Returns false, if the task is rejected
+    boolean execute(Luwrain owner, Runnable runnable)
+    {
+	NullCheck.notNull(runnable, "runnable");
+	return execute(owner, runnable, (runnable instanceof Future)?(Future)runnable:null);
+    }
+
+    //The cancellable object is cancelled together with the task, may be null
+    boolean execute(Luwrain owner, Runnable runnable, Future cancellable)
+    {
+	NullCheck.notNull(owner, "owner");
+	NullCheck.notNull(runnable, "runnable");
+	final Task task = new Task(owner, runnable, cancellable);
+	synchronized(this) {
+	    if (cancelledOwners.contains(owner))
+	    {
+		rejectedCount.incrementAndGet();
+		Log.warning(LOG_COMPONENT, "rejecting the background task of the unloaded extension");
+		return false;
+	    }
+	    Owner o = owners.get(owner);
+	    if (o == null)
+	    {
+		o = new Owner();
+		owners.put(owner, o);
+	    }
+	    if (o.running.size() >= maxTasksPerOwner)
+	    {
+		if (o.pending.size() >= maxPendingPerOwner)
+		{
+		    rejectedCount.incrementAndGet();
+		    Log.error(LOG_COMPONENT, "rejecting the background task, " + o.running.size() + " task(s) of the same owner are running and " + o.pending.size() + " are queued");
+		    if (o.running.isEmpty() && o.pending.isEmpty())
+			owners.remove(owner);
+		    return false;
+		}
+		submittedCount.incrementAndGet();
+		o.pending.add(task);
+		pendingCount.incrementAndGet();
+		Log.warning(LOG_COMPONENT, "queuing the background task, " + o.running.size() + " task(s) of the same owner are running and " + o.pending.size() + " are queued");
+		return true;
+	    }
+	    if (!dispatch(o, task))
+	    {
+		if (o.running.isEmpty() && o.pending.isEmpty())
+		    owners.remove(owner);
+		return false;
+	    }
+	    submittedCount.incrementAndGet();
+	    return true;
+	}
+    }
+
+    //Cancels all running and pending tasks of the owner, returns the number of the cancelled tasks
+    int cancel(Luwrain owner)
+    {
+	NullCheck.notNull(owner, "owner");
+	final List<Task> toCancel = new ArrayList<>();
+	synchronized(this) {
+	    cancelledOwners.add(owner);
+	    final Owner o = owners.remove(owner);
+	    if (o == null)
+		return 0;
+	    pendingCount.addAndGet(-o.pending.size());
+	    toCancel.addAll(o.pending);
+	    toCancel.addAll(o.running);
+	}
+	for(Task t: toCancel)
+	{
+	    if (t.future != null)
+		t.future.cancel(true);
+	    if (t.cancellable != null)
+		t.cancellable.cancel(true);
+	}
+	if (!toCancel.isEmpty())
+	    Log.debug(LOG_COMPONENT, "cancelled " + toCancel.size() + " background task(s)");
+	return toCancel.size();
+    }
+
+    void close()
+    {
+	executor.shutdown();
+    }
+
+    int getQueueDepth()
+    {
+	return pendingCount.get() + executor.getQueue().size();
+    }
+
+    String getStat()
+    {
+	final long completed = completedCount.get();
+	final int ownerCount;
+	synchronized(this) {
+	    ownerCount = owners.size();
+	}
+	final StringBuilder b = new StringBuilder();
+	b.append(virtualThreads?"virtual":"platform").append(" threads");
+	b.append(", running ").append(runningCount.get());
+	b.append(", queued ").append(getQueueDepth());
+	b.append(", owners ").append(ownerCount);
+	b.append(", submitted ").append(submittedCount.get());
+	b.append(", completed ").append(completed);
+	b.append(", rejected ").append(rejectedCount.get());
+	if (completed > 0)
+	{
+	    b.append(", wait avg ").append(toMsec(totalWaitTime.get() / completed)).append("ms max ").append(toMsec(maxWaitTime.get())).append("ms");
+	    b.append(", run avg ").append(toMsec(totalRunTime.get() / completed)).append("ms max ").append(toMsec(maxRunTime.get())).append("ms");
+	}
+	return new String(b);
+    }
+
+    //Must be called with the lock held
+    private boolean dispatch(Owner owner, Task task)
+    {
+	try {
+	    owner.running.add(task);
+	    task.future = executor.submit(task);
+	    return true;
+	}
+	catch(RejectedExecutionException e)
+	{
+	    owner.running.remove(task);
+	    rejectedCount.incrementAndGet();
+	    Log.error(LOG_COMPONENT, "the background task was rejected: " + e.getMessage());
+	    return false;
+	}
+    }
+
+    private void onFinished(Task task)
+    {
+	completedCount.incrementAndGet();
+	synchronized(this) {
+	    final Owner o = owners.get(task.owner);
+	    if (o == null)
+		return;
+	    o.running.remove(task);
+	    while(!o.pending.isEmpty() && o.running.size() < maxTasksPerOwner)
+	    {
+		pendingCount.decrementAndGet();
+		final Task next = o.pending.poll();
+		//The caller has already returned, the rejection may be reported only through the cancellable object
+		if (!dispatch(o, next) && next.cancellable != null)
+		    next.cancellable.cancel(false);
+	    }
+	    if (o.running.isEmpty() && o.pending.isEmpty())
+		owners.remove(task.owner);
+	}
+    }
+
+    static private void updateMax(AtomicLong max, long value)
+    {
+	long current = max.get();
+	while(value > current && !max.compareAndSet(current, value))
+	    current = max.get();
+    }
+
+    static private long toMsec(long nanos)
+    {
+	return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    static private ThreadFactory createVirtualThreadFactory()
+    {
+	try {
+	    final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+	    final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+	    final Object namedBuilder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "luwrain-bkg-", Long.valueOf(1));
+	    return (ThreadFactory)builderClass.getMethod("factory").invoke(namedBuilder);
+	}
+	catch(Exception e)
+	{
+	    return null;
+	}
+    }
+
+    private final class Task implements Runnable
+    {
+	final Luwrain owner;
+	final Runnable runnable;
+	final Future cancellable;
+	final long submitTime = System.nanoTime();
+	volatile Future future = null;
+	Task(Luwrain owner, Runnable runnable, Future cancellable)
+	{
+	    this.owner = owner;
+	    this.runnable = runnable;
+	    this.cancellable = cancellable;
+	}
+	@Override public void run()
+	{
+	    final long startTime = System.nanoTime();
+	    final long waitTime = startTime - submitTime;
+	    totalWaitTime.addAndGet(waitTime);
+	    updateMax(maxWaitTime, waitTime);
+	    runningCount.incrementAndGet();
+	    try {
+		runnable.run();
+	    }
+	    finally {
+		runningCount.decrementAndGet();
+		final long runTime = System.nanoTime() - startTime;
+		totalRunTime.addAndGet(runTime);
+		updateMax(maxRunTime, runTime);
+		onFinished(this);
+	    }
+	}
+    }
+
+    static private final class Owner
+    {
+	final List<Task> running = new ArrayList<>();
+	final Queue<Task> pending = new LinkedList<>();
+    }
+}
@@ -16,13 +16,35 @@
 
 package org.luwrain.core;
 
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * The braille output. The texts are written to the display by a separate
+ * thread, so the slow displays never block the caller. Only the latest
+ * text is kept pending, the texts superseded before the writing are
+ * dropped. The text is cut to the size of the display and isn't written
+ * at all if the display already shows the same cells. The writings are
+ * made not more often than the refresh interval given in the settings.
+ */
 public final class BrailleImpl
 {
+    static private final String LOG_COMPONENT = Base.LOG_COMPONENT;
+    static final int DEFAULT_REFRESH_INTERVAL = 100;
+
     private Registry registry;
     private Braille braille;
     private boolean active = false;
     private String errorMessage = "";
 
+    private ScheduledExecutorService executor = null;
+    private long refreshInterval = TimeUnit.MILLISECONDS.toNanos(DEFAULT_REFRESH_INTERVAL);
+    private final AtomicReference<String> pending = new AtomicReference<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private volatile long lastWriteTime = 0;
+    //Accessed only by the writing thread
+    private String shown = null;
+
     void init(Registry registry, Braille braille,
 	      EventConsumer eventConsumer)
     {
@@ -36,6 +58,7 @@ public final class BrailleImpl
 	    return;
 	}
 	final Settings.Braille settings = Settings.createBraille(registry);
+	startWriting(settings.getRefreshInterval(DEFAULT_REFRESH_INTERVAL));
 	if (!settings.getEnabled(false))
 	    return;
 	final InitResult res = braille.init(eventConsumer);
@@ -50,12 +73,30 @@ public final class BrailleImpl
 	}
     }
 
+    void close()
+    {
+	if (executor == null)
+	    return;
+	executor.shutdownNow();
+	executor = null;
+    }
+
     void textToSpeak(String text)
     {
 	NullCheck.notNull(text, "text");
-	if (braille == null)
+	if (braille == null || executor == null)
+	    return;
+	pending.set(text);
+	if (!scheduled.compareAndSet(false, true))
 	    return;
-	braille.writeText(text);
+	final long delay = Math.max(0, lastWriteTime + refreshInterval - System.nanoTime());
+	try {
+	    executor.schedule(this::write, delay, TimeUnit.NANOSECONDS);
+	}
+	catch(RejectedExecutionException e)
+	{
+	    scheduled.set(false);
+	}
     }
 
     public boolean isActive()
@@ -82,4 +123,48 @@ public final class BrailleImpl
     {
 	return braille != null?braille.getDisplayHeight():0;
     }
+
+    private void startWriting(int refreshIntervalMsec)
+    {
+	this.refreshInterval = TimeUnit.MILLISECONDS.toNanos(Math.max(refreshIntervalMsec, 0));
+	this.lastWriteTime = System.nanoTime() - refreshInterval;
+	this.executor = Executors.newSingleThreadScheduledExecutor((r)->{
+		final Thread t = new Thread(r, "luwrain-braille");
+		t.setDaemon(true);
+		return t;
+	    });
+    }
+
+    private void write()
+    {
+	//Resetting the flag before taking the text, so the text set after that schedules the next writing
+	scheduled.set(false);
+	final String text = pending.getAndSet(null);
+	if (text == null)
+	    return;
+	try {
+	    final String cells = fitToDisplay(text, braille.getDisplayWidth(), braille.getDisplayHeight());
+	    if (cells.equals(shown))
+		return;
+	    braille.writeText(cells);
+	    shown = cells;
+	}
+	catch(Throwable e)
+	{
+	    Log.error(LOG_COMPONENT, "unable to write to the braille display: " + e.getClass().getName() + ": " + e.getMessage());
+	}
+	lastWriteTime = System.nanoTime();
+    }
+
+    //Cuts the text not fitting on the display, the unknown size of the display means no cutting
+    static String fitToDisplay(String text, int width, int height)
+    {
+	NullCheck.notNull(text, "text");
+	if (width <= 0)
+	    return text;
+	final long cellCount = (long)width * Math.max(height, 1);
+	if (text.length() <= cellCount)
+	    return text;
+	return text.substring(0, (int)cellCount);
+    }
 }
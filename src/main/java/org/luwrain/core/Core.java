@@ -66,6 +66,8 @@ final class Core extends EventDispatching
     void run()
     {
 	init();
+	if (uiSettings.getRenderThread(true))
+	    windowManager.startRenderThread();
     interaction.startInputEventsAccepting(this);
 	windowManager.redraw();
 	//soundManager.startingMode();
@@ -77,8 +79,14 @@ final class Core extends EventDispatching
 	{
 	    Log.error(LOG_COMPONENT, "Unable to run the startup hook: " + e.getClass().getName() + ": " + e.getMessage());
 	}
+	watchdog.start(uiSettings.getStallThreshold(StallWatchdog.DEFAULT_THRESHOLD));
 	eventLoop(mainStopCondition);
+	watchdog.close();
+	windowManager.closeRenderThread();
+	braille.close();
+	idleScheduler.close();
 	workers.finish();
+	bkg.close();
 	playSound(Sounds.SHUTDOWN);
 	    try {
 		Thread.sleep(3000);//FIXME:
@@ -167,7 +175,12 @@ final class Core extends EventDispatching
 	loadScriptExtensions();
 	initI18n();
 	objRegistry.add(null, new StartingModeProperty());
+	objRegistry.add(null, new org.luwrain.core.properties.StatProperty(BkgExecutor.PROP_STAT, bkg::getStat));
+	objRegistry.add(null, new org.luwrain.core.properties.StatProperty(EventLoopStat.PROP_STAT, ()->String.join("\n", eventStat.getLines())));
+	objRegistry.add(null, new org.luwrain.core.properties.StatProperty(StallWatchdog.PROP_STAT, ()->String.join("\n", watchdog.getLines())));
+	objRegistry.add(null, new org.luwrain.core.properties.StatProperty(SpeechLatency.PROP_STAT, ()->String.join("\n", speech.latency.getLines())));
 	speech.init(objRegistry.getSpeechEngines());
+	speech.initCache(new File(props.getFileProperty(Luwrain.PROP_DIR_DATA), "speech-cache"));
 	braille.init(registry, os.getBraille(), this);
 	globalKeys.loadFromRegistry();
 	fileTypes.load(registry);
@@ -175,6 +188,14 @@ final class Core extends EventDispatching
 	loadDesktop();
 	props.setProviders(objRegistry.getPropertiesProviders());
 	uiSettings = Settings.createUserInterface(registry);
+	idleScheduler.setDelays(uiSettings.getIdleDelay(IdleScheduler.DEFAULT_SHORT_DELAY), uiSettings.getLongIdleDelay(IdleScheduler.DEFAULT_LONG_DELAY));
+	try {
+	    bkg.setLimits(uiSettings.getBkgMaxThreads(BkgExecutor.MAX_THREADS), uiSettings.getBkgMaxTasksPerOwner(BkgExecutor.MAX_TASKS_PER_OWNER), uiSettings.getBkgMaxPendingPerOwner(BkgExecutor.MAX_PENDING_PER_OWNER));
+	}
+	catch(IllegalArgumentException e)
+	{
+	    Log.error(LOG_COMPONENT, "invalid limits of the background tasks in the registry: " + e.getMessage());
+	}
     }
 
     private void loadScriptExtensions()
@@ -599,7 +620,7 @@ onNewAreasLayout();
 	if (effectiveArea == null)//Area isn't known by the applications manager, generally admissible situation
 	    return;
 	if (effectiveArea == screenContentManager.getActiveArea())
-	    windowManager.redrawArea(effectiveArea);
+	    windowManager.requestHotPointUpdate(effectiveArea);
     }
 
     void onAreaNewContentIface(Luwrain instance, Area area)
@@ -609,7 +630,7 @@ onNewAreasLayout();
 	final Area effectiveArea = getEffectiveAreaFor(instance, area);
 	if (effectiveArea == null)//Area isn't known by the applications manager, generally admissible situation
 	    return;
-	windowManager.redrawArea(effectiveArea);
+	windowManager.requestAreaNewContent(effectiveArea);
     }
 
     void onAreaNewNameIface(Luwrain instance, Area area)
@@ -619,7 +640,7 @@ onNewAreasLayout();
 	final Area effectiveArea = getEffectiveAreaFor(instance, area);
 	if (effectiveArea == null)//Area isn't known by the applications manager, generally admissible situation
 	    return;
-	windowManager.redrawArea(effectiveArea);
+	windowManager.requestAreaRedraw(effectiveArea);
     }
 
     void onAreaNewBackgroundSound(Luwrain instance, Area area)
@@ -732,18 +753,15 @@ onNewAreasLayout();
 	this.announcement = null;
 	if (sound != null)
 	    playSound(sound);
-	speech.speak(i18n.getSpeakableText(text, Luwrain.SpeakableTextType.NATURAL), Speech.PITCH_MESSAGE, 0);
-	interaction.startDrawSession();
-	interaction.clearRect(0, interaction.getHeightInCharacters() - 1, interaction.getWidthInCharacters() - 1, interaction.getHeightInCharacters() - 1);
-	interaction.drawText(0, interaction.getHeightInCharacters() - 1, text, true);
-	interaction.endDrawSession();
+	speech.speak(i18n.getSpeakableText(text, Luwrain.SpeakableTextType.NATURAL), Speech.PITCH_MESSAGE, 0, SpeechScheduler.Priority.MESSAGE);
+	windowManager.requestMessage(text);
     }
 
     void fontSizeInc()
     {
 	mainCoreThreadOnly();
-	interaction.setDesirableFontSize(interaction.getFontSize() + 5); 
-	windowManager.redraw();
+	windowManager.invokeInteraction(()->interaction.setDesirableFontSize(interaction.getFontSize() + 5));
+	windowManager.requestRedraw();
 	apps.sendBroadcastEvent(new SystemEvent(SystemEvent.Type.BROADCAST, SystemEvent.Code.FONT_SIZE_CHANGED));
 	message(i18n.getStaticStr("FontSize") + " " + interaction.getFontSize(), Luwrain.MessageType.REGULAR);
     }
@@ -753,8 +771,8 @@ onNewAreasLayout();
 	mainCoreThreadOnly();
 	if (interaction.getFontSize() < 15)
 	    return;
-	interaction.setDesirableFontSize(interaction.getFontSize() - 5); 
-	windowManager.redraw();
+	windowManager.invokeInteraction(()->interaction.setDesirableFontSize(interaction.getFontSize() - 5));
+	windowManager.requestRedraw();
 	apps.sendBroadcastEvent(new SystemEvent(SystemEvent.Type.BROADCAST, SystemEvent.Code.FONT_SIZE_CHANGED));
 	message(i18n.getStaticStr("FontSize") + " " + interaction.getFontSize(), Luwrain.MessageType.REGULAR);
     }
@@ -870,7 +888,8 @@ onNewAreasLayout();
 	    areaInaccessibleMessage();
 	    return;
 	}
-	final Action[] actions = (Action[])res.get();
+	//The area may return the same array every time, the menu gets its own copy
+	final Action[] actions = ((Action[])res.get()).clone();
 	if (actions.length == 0)
 	{
 	    areaInaccessibleMessage();
@@ -23,6 +23,13 @@ public class Event
     private volatile boolean processed = false;
     private final Object syncObj = new Object();
 
+    //The moment of putting to the event queue (System.nanoTime()), set by the core
+    long queuedTime = 0;
+    //The event this one was prepared from, marked as processed together with this one
+    Event source = null;
+    //Enqueued in the main thread while processing the input event, i.e. caused by the user
+    boolean userCaused = false;
+
     /**
      * Signals that the processing of this event is finished. Do not touch
      * this method as it is designed for invocation by 
@@ -39,6 +46,8 @@ public class Event
 	{
 	    syncObj.notifyAll();
 	}
+	if (source != null)
+	    source.markAsProcessed();
     }
 
     /**
@@ -19,6 +19,7 @@ package org.luwrain.core;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
+import java.util.function.*;
 import java.nio.file.*;
 
 import org.luwrain.core.events.*;
@@ -28,10 +29,13 @@ import org.luwrain.core.listening.*;
 
 abstract class EventDispatching extends Areas
 {
+    static private final int MAX_REPEAT_COUNT = 64;
+
     protected final GlobalKeys globalKeys;
     protected Listening listening = null;
     protected final org.luwrain.core.properties.Listening listeningProp;
-    private AtomicBoolean idleEventCancelling = null;
+    protected final IdleScheduler idleScheduler = new IdleScheduler(this);
+    private final ActionKeymap actionKeymap = new ActionKeymap();
 
     protected EventDispatching(CmdLine cmdLine, Registry registry,
 			       PropertiesRegistry props, String lang, Interaction interaction)
@@ -53,6 +57,21 @@ abstract class EventDispatching extends Areas
     abstract protected void onBeforeEventProcessing();
     abstract protected void onAltX();
 
+    @Override protected Event prepareEvent(Event event)
+    {
+	if (!(event instanceof InputEvent))
+	    return event;
+	final InputEvent inputEvent = Keyboard.translate((InputEvent)event);
+	final String commandName = globalKeys.getCommandName(inputEvent);
+	final boolean altX = commandName == null &&
+	    !inputEvent.isSpecial() &&
+	    InputEvent.getKeyboardLayout().onSameButton(inputEvent.getChar(), 'x') &&
+	    inputEvent.withAltOnly();
+	final PreparedInputEvent res = new PreparedInputEvent(inputEvent, commandName, altX);
+	res.source = event;
+	return res;
+    }
+
     @Override protected boolean onEvent(Event event)
     {
 	try {
@@ -75,8 +94,15 @@ abstract class EventDispatching extends Areas
 		    });
 		return true;
 	    }
+	    if (event instanceof AsyncCallableEvent)
+	    {
+		((AsyncCallableEvent)event).call();
+		return true;
+	    }
+	    if (event instanceof PreparedInputEvent)
+		return onInputEvent((PreparedInputEvent)event);
 	    if (event instanceof InputEvent)
-		return onInputEvent(Keyboard.translate((InputEvent)event));
+		return onInputEvent((PreparedInputEvent)prepareEvent(event));
 	    if (event instanceof SystemEvent)
 	    {
 		final SystemEvent systemEvent = (SystemEvent)event;
@@ -102,6 +128,12 @@ abstract class EventDispatching extends Areas
 	}
     }
 
+    @Override void onNewAreasLayout()
+    {
+	super.onNewAreasLayout();
+	actionKeymap.clear();
+    }
+
     @Override public void announce(StopCondition stopCondition)
     {
 	NullCheck.notNull(stopCondition, "stopCondition");
@@ -118,11 +150,12 @@ abstract class EventDispatching extends Areas
 	this.announcement = null;
     }
 
-    private boolean onInputEvent(InputEvent event)
+    private boolean onInputEvent(PreparedInputEvent prepared)
     {
-	NullCheck.notNull(event, "event");
+	NullCheck.notNull(prepared, "prepared");
+	final InputEvent event = prepared.event;
 	onBeforeEventProcessing();
-	if (systemHotKey(event))
+	if (systemHotKey(prepared))
 	    return true;
 	final Area activeArea = getActiveArea();
 	if (activeArea == null)
@@ -130,51 +163,67 @@ abstract class EventDispatching extends Areas
 	    noAppsMessage();
 	    return true;
 	}
+	speech.latency.setArea(activeArea);
+	watchdog.setActive(activeArea, apps.getActiveApp());
 	unsafeAreaOperation(()->{
-		final Action[] actions = activeArea.getAreaActions();
-		if (actions != null)
-		    for(Action a: actions)
+		final Action action = actionKeymap.find(activeArea, activeArea.getAreaActions(), event);
+		if (action != null && activeArea.onSystemEvent(new ActionEvent(action)))
+		    return;
+		final long startTime = System.nanoTime();
+		if (activeArea instanceof RepeatedInputArea && isRepeatable(event))
+		{
+		    final int repeats = eventQueue.takeRepeats(event, MAX_REPEAT_COUNT - 1);
+		    if (repeats > 0)
 		    {
-			final InputEvent actionEvent = a.inputEvent();
-			if (actionEvent == null || !actionEvent.equals(event))
-			    continue;
-			if (activeArea.onSystemEvent(new ActionEvent(a)))
-			    return;
-			break;
+			if (!((RepeatedInputArea)activeArea).onRepeatedInputEvent(event, repeats + 1))
+			    playSound(Sounds.EVENT_NOT_PROCESSED);
+			eventStat.onAreaHandled(activeArea, System.nanoTime() - startTime);
+			installIdleEvent();
+			return;
 		    }
+		}
 		if (!activeArea.onInputEvent(event))
 		    playSound(Sounds.EVENT_NOT_PROCESSED);
+		eventStat.onAreaHandled(activeArea, System.nanoTime() - startTime);
 		installIdleEvent();
 	    });
 	return true;
     }
 
+    static private boolean isRepeatable(InputEvent event)
+    {
+	if (!event.isSpecial() || event.isModified())
+	    return false;
+	switch(event.getSpecial())
+	{
+	case ARROW_DOWN:
+	case ARROW_UP:
+	case ARROW_LEFT:
+	case ARROW_RIGHT:
+	case ALTERNATIVE_ARROW_DOWN:
+	case ALTERNATIVE_ARROW_UP:
+	case ALTERNATIVE_ARROW_LEFT:
+	case ALTERNATIVE_ARROW_RIGHT:
+	case PAGE_DOWN:
+	case PAGE_UP:
+	case ALTERNATIVE_PAGE_DOWN:
+	case ALTERNATIVE_PAGE_UP:
+	    return true;
+	default:
+	    return false;
+	}
+    }
+
     private void installIdleEvent()
     {
-	final AtomicBoolean cancelling = new AtomicBoolean(false);
-	synchronized(this){
-	    if (this.idleEventCancelling != null)
-		this.idleEventCancelling.set(true);
-	    this.idleEventCancelling = cancelling;
-	};
-	new Thread(()->{
-		try {
-		    Thread.sleep(1000);
-		}
-		catch(InterruptedException e)
-		{
-		    return;
-		}
-		if (cancelling.get())
-		    return;
-		enqueueEvent(new SystemEvent(SystemEvent.Code.IDLE));
-	}).start();
+	idleScheduler.touch();
     }
 
-    private boolean systemHotKey(InputEvent event)
+    private boolean systemHotKey(PreparedInputEvent prepared)
     {
-	NullCheck.notNull(event, "event");
-	final String commandName = globalKeys.getCommandName(event);
+	NullCheck.notNull(prepared, "prepared");
+	final InputEvent event = prepared.event;
+	final String commandName = prepared.commandName;
 	if (commandName != null)
 	{
 	    if (!commands.run(commandName))
@@ -197,9 +246,7 @@ abstract class EventDispatching extends Areas
 		code == InputEvent.Special.RIGHT_ALT)
 		return true;
 	}
-	if (!event.isSpecial() &&
-	    InputEvent.getKeyboardLayout().onSameButton(event.getChar(), 'x') &&
-	    event.withAltOnly())
+	if (prepared.altX)
 	{
 	    onAltX();
 	    return true;
@@ -215,7 +262,7 @@ abstract class EventDispatching extends Areas
 	switch(res.get())
 	{
 	case ScreenContentManager.EVENT_NOT_PROCESSED:
-	    if (event.getCode() != SystemEvent.Code.IDLE)
+	    if (event.getCode() != SystemEvent.Code.IDLE && event.getCode() != SystemEvent.Code.LONG_IDLE)
 		playSound(Sounds.EVENT_NOT_PROCESSED);
 	    break;
 	case ScreenContentManager.NO_APPLICATIONS:
@@ -290,6 +337,26 @@ abstract class EventDispatching extends Areas
 	speech.speak(name, 0, 0);
     }
 
+    //The input event translated and classified in the thread of the event producer
+    static final class PreparedInputEvent extends Event
+    {
+	final InputEvent event;
+	final String commandName;
+	final boolean altX;
+	PreparedInputEvent(InputEvent event, String commandName, boolean altX)
+	{
+	    NullCheck.notNull(event, "event");
+	    this.event = event;
+	    this.commandName = commandName;
+	    this.altX = altX;
+	}
+	//True if the event goes to the active area without any global handling
+	boolean isRegular()
+	{
+	    return commandName == null && !altX;
+	}
+    }
+
     static class RunnableEvent extends Event
     {
 	final Runnable runnable;
@@ -318,4 +385,52 @@ abstract class EventDispatching extends Areas
 	    return result;
 	}
     }
+
+    static class AsyncCallableEvent extends Event
+    {
+	final Callable[] callables;
+	final CompletableFuture<Object[]> future = new CompletableFuture<>();
+	AsyncCallableEvent(Callable[] callables)
+	{
+	    NullCheck.notNullItems(callables, "callables");
+	    this.callables = callables;
+	}
+	void call()
+	{
+	    final Object[] res = new Object[callables.length];
+	    for(int i = 0;i < callables.length;i++)
+		try {
+		    res[i] = callables[i].call();
+		}
+		catch(Throwable e)
+		{
+		    future.completeExceptionally(e);
+		    return;
+		}
+	    future.complete(res);
+	}
+
+	/**
+	 * Executes the single callable in the main thread. The callable is
+	 * executed immediately, if the caller is in the main thread, or the
+	 * event for it is passed to the queue otherwise.
+	 *
+	 * @param callable The callable to execute
+	 * @param mainThread True if the caller is in the main thread
+	 * @param queue The consumer putting the event to the queue of the main thread
+	 * @return The future completed with the result of the callable or with the exception it has thrown
+	 */
+	static <T> CompletableFuture<T> call(Callable<T> callable, boolean mainThread, Consumer<Event> queue)
+	{
+	    NullCheck.notNull(callable, "callable");
+	    NullCheck.notNull(queue, "queue");
+	    final AsyncCallableEvent event = new AsyncCallableEvent(new Callable[]{callable});
+	    if (mainThread)
+		event.call(); else
+		queue.accept(event);
+	    //The array has the only item returned by the given callable, so it is always of the type T
+	    @SuppressWarnings("unchecked") final CompletableFuture<T> res = event.future.thenApply((r)->(T)r[0]);
+	    return res;
+	}
+    }
 }
@@ -0,0 +1,109 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Collects the timing of the main event loop: how long the events wait
+ * in the queue, how long it takes to handle them (by the class of the
+ * event and by the class of the active area), the time spent on the
+ * processing of the event responses and on the announcements, and the
+ * number of the events per second. The recording is done in the main
+ * thread only, the reading is possible in any thread.
+ */
+final class EventLoopStat
+{
+    static final String PROP_STAT = "luwrain.events.stat";
+
+    private final Map<Class, LatencyHistogram>
+	waitByEvent = new ConcurrentHashMap<>(),
+	handlingByEvent = new ConcurrentHashMap<>(),
+	handlingByArea = new ConcurrentHashMap<>();
+    private final LatencyHistogram
+	eventResponses = new LatencyHistogram(),
+	announcements = new LatencyHistogram();
+    private long secondStart = System.nanoTime();
+    private int eventsThisSecond = 0;
+    private volatile int eventsPerSecond = 0, maxEventsPerSecond = 0;
+
+    void onEventWait(Event event, long nanos)
+    {
+	getHistogram(waitByEvent, event.getClass()).record(nanos);
+    }
+
+    void onEventHandled(Event event, long nanos)
+    {
+	getHistogram(handlingByEvent, event.getClass()).record(nanos);
+	final long now = System.nanoTime();
+	if (now - secondStart >= TimeUnit.SECONDS.toNanos(1))
+	{
+	    eventsPerSecond = eventsThisSecond;
+	    if (eventsThisSecond > maxEventsPerSecond)
+		maxEventsPerSecond = eventsThisSecond;
+	    eventsThisSecond = 0;
+	    secondStart = now;
+	}
+	eventsThisSecond++;
+    }
+
+    void onAreaHandled(Area area, long nanos)
+    {
+	getHistogram(handlingByArea, area.getClass()).record(nanos);
+    }
+
+    void onEventResponse(long nanos)
+    {
+	eventResponses.record(nanos);
+    }
+
+    void onAnnouncement(long nanos)
+    {
+	announcements.record(nanos);
+    }
+
+    String[] getLines()
+    {
+	final List<String> res = new ArrayList<>();
+	res.add("events per second: " + eventsPerSecond + ", max " + maxEventsPerSecond);
+	addLines(res, "wait", waitByEvent);
+	addLines(res, "handling", handlingByEvent);
+	addLines(res, "area", handlingByArea);
+	res.add("event responses: " + eventResponses.toSummary());
+	res.add("announcements: " + announcements.toSummary());
+	return res.toArray(new String[res.size()]);
+    }
+
+    static private void addLines(List<String> res, String title, Map<Class, LatencyHistogram> histograms)
+    {
+	final List<Map.Entry<Class, LatencyHistogram>> entries = new ArrayList<>(histograms.entrySet());
+	Collections.sort(entries, (e1, e2)->e1.getKey().getName().compareTo(e2.getKey().getName()));
+	for(Map.Entry<Class, LatencyHistogram> e: entries)
+	    res.add(title + " " + e.getKey().getName() + ": " + e.getValue().toSummary());
+    }
+
+    static private LatencyHistogram getHistogram(Map<Class, LatencyHistogram> histograms, Class c)
+    {
+	final LatencyHistogram res = histograms.get(c);
+	if (res != null)
+	    return res;
+	final LatencyHistogram newHistogram = new LatencyHistogram();
+	histograms.put(c, newHistogram);
+	return newHistogram;
+    }
+}
@@ -17,21 +17,91 @@
 package org.luwrain.core;
 
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
 
+import org.luwrain.core.events.*;
+
+/**
+ * The queue of the events for the main event loop. The events are
+ * distributed over several lanes with different priorities: the input
+ * events always go first, then the runnables for the UI thread, and
+ * finally, the system events (broadcasts, IDLE and others). Putting the
+ * event never blocks the producer. There can be many producers, but only
+ * one consumer, which is the main thread of the core.
+ * <p>
+ * Overflow policy: the UI lane is never truncated, because the producers
+ * may wait for their runnables to be executed, only a warning is
+ * issued. The input and the system lanes drop the new events if they are
+ * full, and the dropped events are marked as processed. Several IDLE
+ * events are never queued together, the new one is dropped if there is
+ * already one pending.
+ */
 final class EventQueue
 {
     static private final String LOG_COMPONENT = Base.LOG_COMPONENT;
-    private final LinkedBlockingQueue<Event> events = new LinkedBlockingQueue<Event>(1024);
+    static final int
+	INPUT_LANE_CAPACITY = 1024,
+	UI_LANE_WARNING_THRESHOLD = 1024,
+	SYSTEM_LANE_CAPACITY = 1024;
+
+    enum Lane {INPUT, UI, SYSTEM};
+
+    private final ConcurrentLinkedQueue<Event>
+	inputEvents = new ConcurrentLinkedQueue<>(),
+	uiEvents = new ConcurrentLinkedQueue<>(),
+	systemEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger
+	inputCount = new AtomicInteger(0),
+	uiCount = new AtomicInteger(0),
+	systemCount = new AtomicInteger(0);
+    private final AtomicBoolean idlePending = new AtomicBoolean(false);
+    private final AtomicLong droppedCount = new AtomicLong(0);
+    private volatile Thread consumer = null;
+    private volatile boolean consumerParked = false;
     private Event again = null;
 
     void putEvent(Event e)
     {
-	try {
-	    events.put(e);
+	NullCheck.notNull(e, "e");
+	e.queuedTime = System.nanoTime();
+	switch(getLane(e))
+	{
+	case INPUT:
+	    if (inputCount.incrementAndGet() > INPUT_LANE_CAPACITY)
+	    {
+		inputCount.decrementAndGet();
+		drop(e, "input");
+		return;
+	    }
+	    inputEvents.offer(e);
+	    break;
+	case UI:
+	    if (uiCount.incrementAndGet() == UI_LANE_WARNING_THRESHOLD)
+		Log.warning(LOG_COMPONENT, "the UI lane of the event queue has " + UI_LANE_WARNING_THRESHOLD + " pending events");
+	    uiEvents.offer(e);
+	    break;
+	default:
+	    if (isIdle(e) && !idlePending.compareAndSet(false, true))
+	    {
+		e.markAsProcessed();
+		return;
+	    }
+	    if (systemCount.incrementAndGet() > SYSTEM_LANE_CAPACITY)
+	    {
+		systemCount.decrementAndGet();
+		if (isIdle(e))
+		    idlePending.set(false);
+		drop(e, "system");
+		return;
+	    }
+	    systemEvents.offer(e);
 	}
-	catch (InterruptedException ex)
+	if (consumerParked)
 	{
-	    Thread.currentThread().interrupt();
+	    final Thread c = consumer;
+	    if (c != null)
+		LockSupport.unpark(c);
 	}
     }
 
@@ -52,6 +122,7 @@ final class EventQueue
 	again = event;
     }
 
+    //Must be called from the single consumer thread only
     Event takeEvent()
     {
 	if (again != null)
@@ -60,13 +131,108 @@ final class EventQueue
 	    again = null;
 	    return event;
 	}
-	try {
-	    return events.take();
+	if (consumer == null)
+	    consumer = Thread.currentThread();
+	while(true)
+	{
+	    Event event = pollEvent();
+	    if (event != null)
+		return event;
+	    consumerParked = true;
+	    event = pollEvent();
+	    if (event != null)
+	    {
+		consumerParked = false;
+		return event;
+	    }
+	    LockSupport.park(this);
+	    consumerParked = false;
+	    if (Thread.currentThread().isInterrupted())
+		return null;
+	}
+    }
+
+    //Must be called from the single consumer thread only
+    int takeRepeats(InputEvent event, int maxCount)
+    {
+	NullCheck.notNull(event, "event");
+	if (again != null)
+	    return 0;
+	int res = 0;
+	while(res < maxCount)
+	{
+	    final Event head = inputEvents.peek();
+	    if (head == null || !(head instanceof EventDispatching.PreparedInputEvent))
+		break;
+	    final EventDispatching.PreparedInputEvent prepared = (EventDispatching.PreparedInputEvent)head;
+	    if (!prepared.isRegular() || !prepared.event.equals(event))
+		break;
+	    inputEvents.poll();
+	    inputCount.decrementAndGet();
+	    head.markAsProcessed();
+	    res++;
+	}
+	return res;
+    }
+
+    int size()
+    {
+	return inputCount.get() + uiCount.get() + systemCount.get();
+    }
+
+    long getDroppedCount()
+    {
+	return droppedCount.get();
+    }
+
+    private Event pollEvent()
+    {
+	Event event = inputEvents.poll();
+	if (event != null)
+	{
+	    inputCount.decrementAndGet();
+	    return event;
+	}
+	event = uiEvents.poll();
+	if (event != null)
+	{
+	    uiCount.decrementAndGet();
+	    return event;
 	}
-	catch (InterruptedException ex)
+	event = systemEvents.poll();
+	if (event != null)
 	{
-	    Thread.currentThread().interrupt();
-	    return null;
+	    systemCount.decrementAndGet();
+	    if (isIdle(event))
+		idlePending.set(false);
+	    return event;
 	}
+	return null;
+    }
+
+    private void drop(Event e, String laneName)
+    {
+	droppedCount.incrementAndGet();
+	Log.warning(LOG_COMPONENT, "the " + laneName + " lane of the event queue is full, dropping the event of class " + e.getClass().getName());
+	e.markAsProcessed();
+    }
+
+    static Lane getLane(Event e)
+    {
+	if (e instanceof InputEvent || e instanceof EventDispatching.PreparedInputEvent)
+	    return Lane.INPUT;
+	if (e instanceof EventDispatching.RunnableEvent ||
+	    e instanceof EventDispatching.CallableEvent ||
+	    e instanceof EventDispatching.AsyncCallableEvent)
+	    return Lane.UI;
+	return Lane.SYSTEM;
+    }
+
+    static private boolean isIdle(Event e)
+    {
+	if (!(e instanceof SystemEvent))
+	    return false;
+	final SystemEvent s = (SystemEvent)e;
+	return s.getType() == SystemEvent.Type.REGULAR && s.getCode() == SystemEvent.Code.IDLE;
     }
 }
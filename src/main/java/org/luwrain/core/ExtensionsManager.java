@@ -17,6 +17,7 @@
 package org.luwrain.core;
 
 import java.util.*;
+import java.util.concurrent.atomic.*;
 import java.util.jar.*;
 import java.io.*;
 
@@ -29,6 +30,10 @@ public final class ExtensionsManager
     private final InterfaceManager interfaces;
     private LoadedExtension[] extensions = new LoadedExtension[0];
     private final List<LoadedExtension> dynamicExtensions = new ArrayList<>();
+    //All loaded extensions, updated in the main thread on every change, for reading in any thread
+    private volatile LoadedExtension[] allExtensions = new LoadedExtension[0];
+    private final AtomicLong hooksGeneration = new AtomicLong(0);
+    private final AtomicReference<HookIndex> hookIndex = new AtomicReference<>();
 
     ExtensionsManager(InterfaceManager interfaces)
     {
@@ -85,6 +90,8 @@ public final class ExtensionsManager
 	    res.add(createLoadedExtension(ext, iface));
 	}
 	extensions = res.toArray(new LoadedExtension[res.size()]);
+	updateAllExtensions();
+	onHooksChanged();
 	Log.debug(LOG_COMPONENT, "loaded " + extensions.length + " extensions");
     }
 
@@ -102,14 +109,22 @@ public final class ExtensionsManager
 	    interfaces.release(e.luwrain);
 	}
 	extensions = null;
+	allExtensions = new LoadedExtension[0];
+	onHooksChanged();
     }
 
+    //May be called in any thread
     LoadedExtension[] getAllLoadedExtensions()
+    {
+	return allExtensions.clone();
+    }
+
+    private void updateAllExtensions()
     {
 	final List<LoadedExtension> res = new ArrayList<>();
 	res.addAll(Arrays.asList(extensions));
 	res.addAll(dynamicExtensions);
-	return res.toArray(new LoadedExtension[res.size()]);
+	this.allExtensions = res.toArray(new LoadedExtension[res.size()]);
     }
 
     //From any thread
@@ -117,10 +132,43 @@ public final class ExtensionsManager
     {
 	NullCheck.notEmpty(hookName, "hookName");
 	NullCheck.notNull(runner, "runner");
-	for(LoadedExtension e: getAllLoadedExtensions())
-	    if (e.ext instanceof HookContainer && !((HookContainer)e.ext).runHooks(hookName, runner))
-		return false;
-	return true;
+	return getHookIndex().run(hookName, runner);
+    }
+
+    /**
+     * Returns the number changing on every change of the set of the hooks:
+     * on loading and unloading of the extensions and on adding the hooks by
+     * the scripts. The results of running the hooks may be cached while
+     * this number stays the same. May be called in any thread.
+     */
+    public long getHooksGeneration()
+    {
+	return hooksGeneration.get();
+    }
+
+    //Called on loading and unloading of the extensions and by the scripts on adding the hooks, takes no locks
+    void onHooksChanged()
+    {
+	hooksGeneration.incrementAndGet();
+	hookIndex.set(null);
+    }
+
+    /*
+     * The index is built on the first run of the hooks after any change.
+     * Building takes the locks of the script modules, so it is done without
+     * any lock of this object; the concurrent callers may build the index
+     * at the same time, and the index of the outdated generation is rebuilt
+     * on the next call.
+     */
+    private HookIndex getHookIndex()
+    {
+	final HookIndex index = hookIndex.get();
+	final long generation = hooksGeneration.get();
+	if (index != null && index.generation == generation)
+	    return index;
+	final HookIndex newIndex = new HookIndex(generation, getAllLoadedExtensions());
+	hookIndex.compareAndSet(index, newIndex);
+	return newIndex;
     }
 
     LoadedExtension addDynamicExtension(Extension ext, Luwrain luwrain)
@@ -132,6 +180,8 @@ public final class ExtensionsManager
 		return null;
 	final LoadedExtension loadedExt = createLoadedExtension(ext, luwrain);
 	dynamicExtensions.add(loadedExt);
+	updateAllExtensions();
+	onHooksChanged();
 	return loadedExt;
     }
 
@@ -142,7 +192,9 @@ public final class ExtensionsManager
 	while (it.hasNext())
 	    if (it.next().ext == ext)
 	    {
-		dynamicExtensions.remove(it);
+		it.remove();
+		updateAllExtensions();
+		onHooksChanged();
 		return true;
 	    }
 	return false;
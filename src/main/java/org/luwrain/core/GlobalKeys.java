@@ -19,10 +19,16 @@ package org.luwrain.core;
 import java.util.*;
 import org.luwrain.core.events.*;
 
+/**
+ * The mapping of the global hot keys to the names of the commands. The
+ * lookup is done by the hash of the input event and may be
+ * performed in any thread, since the mapping is replaced entirely on
+ * every loading.
+ */
 final class GlobalKeys
 {
-    private final List<Item> items = new ArrayList<>();
     private final Registry registry;
+    private volatile Map<InputEvent, String> keymap = new HashMap<>();
 
     GlobalKeys(Registry registry)
     {
@@ -30,38 +36,26 @@ final class GlobalKeys
 	this.registry = registry;
     }
 
-    String getCommandName(InputEvent event )
+    //From any thread
+    String getCommandName(InputEvent event)
     {
 	NullCheck.notNull(event, "event");
-	for(int i = 0;i < items.size();i++)
-	{
-	    final Item item = items.get(i);
-	    if (item.event.equals(event))
-		return item.actionName;
-	}
-	return null;
+	return keymap.get(event);
     }
 
     void loadFromRegistry()
     {
 	final String globalKeysDir = Settings.GLOBAL_KEYS_PATH;
+	final Map<InputEvent, String> newKeymap = new HashMap<>();
 	String[] dirs = registry.getDirectories(Settings.GLOBAL_KEYS_PATH);
 	if (dirs != null)
 	    for(String s: dirs)
 	    {
 		final InputEvent event = getInputEventFromRegistry(globalKeysDir + "/" + s);
 		if (event != null)
-		    addMapping(event, s.trim());
+		    newKeymap.putIfAbsent(event, s.trim());
 	    }
-    }
-
-    private void addMapping(InputEvent event, String actionName)
-    {
-	NullCheck.notNull(event, "event");
-	NullCheck.notNull(actionName, "actionName");
-	if (getCommandName(event) != null)
-	    return;
-	items.add(new Item(event, actionName));
+	this.keymap = newKeymap;
     }
 
     private InputEvent getInputEventFromRegistry(String path)
@@ -94,18 +88,4 @@ final class GlobalKeys
 	final boolean withAlt = proxy.getWithAlt(false);
 	return new InputEvent(special != null, special, c, withShift, withControl, withAlt); 
     }
-
-    static private class Item
-    {
-	final InputEvent event;
-	final String actionName;
-
-	Item(InputEvent event, String actionName)
-	{
-	    NullCheck.notNull(event, "event");
-	    NullCheck.notNull(actionName, "actionName");
-	    this.event = event;
-	    this.actionName = actionName;
-	}
-    }
 }
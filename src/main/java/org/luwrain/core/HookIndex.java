@@ -0,0 +1,129 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import java.util.*;
+
+import org.luwrain.core.ExtensionsManager.LoadedExtension;
+import org.luwrain.script.core.ScriptCore.ModuleHook;
+
+/**
+ * The handlers of the hooks of all loaded extensions by the names of the
+ * hooks. The hooks of the script extensions are known by their names and
+ * are taken directly, while the rest of the extensions implementing
+ * {@link HookContainer} are asked for every hook name. The handlers of
+ * every name are kept in the order of the extensions, so the hooks run in
+ * the same order as asking the extensions one by one. If there are no
+ * extensions of the second kind, running of the hook without the handlers
+ * costs a single map lookup. The index is immutable and is replaced
+ * entirely on every change of the extensions or the hooks.
+ */
+final class HookIndex
+{
+    static private final String LOG_COMPONENT = Base.LOG_COMPONENT;
+
+    private interface Handler
+    {
+	//Returns false if the running of the following handlers must be stopped
+	boolean run(String hookName, HookContainer.HookRunner runner);
+    }
+
+    //The generation of the hooks in ExtensionsManager, for which the index is built
+    final long generation;
+    private final Map<String, Handler[]> handlers = new HashMap<>();
+    //For the names without the script hooks
+    private final Handler[] containers;
+
+    HookIndex(long generation, LoadedExtension[] extensions)
+    {
+	NullCheck.notNullItems(extensions, "extensions");
+	this.generation = generation;
+	final List<Map<String, List<ModuleHook>>> scriptHooks = new ArrayList<>();
+	final List<Handler> containers = new ArrayList<>();
+	final Set<String> names = new HashSet<>();
+	for(LoadedExtension e: extensions)
+	{
+	    if (e.ext instanceof ScriptExtension)
+	    {
+		final Map<String, List<ModuleHook>> hooks = ((ScriptExtension)e.ext).getHooks();
+		scriptHooks.add(hooks);
+		names.addAll(hooks.keySet());
+		continue;
+	    }
+	    scriptHooks.add(null);
+	    if (e.ext instanceof HookContainer)
+		containers.add(containerHandler((HookContainer)e.ext));
+	}
+	this.containers = containers.toArray(new Handler[containers.size()]);
+	for(String name: names)
+	{
+	    final List<Handler> res = new ArrayList<>();
+	    for(int i = 0;i < extensions.length;i++)
+	    {
+		final Map<String, List<ModuleHook>> hooks = scriptHooks.get(i);
+		if (hooks != null)
+		{
+		    final List<ModuleHook> h = hooks.get(name);
+		    if (h != null)
+			for(ModuleHook hook: h)
+			    res.add(hookHandler(hook));
+		    continue;
+		}
+		if (extensions[i].ext instanceof HookContainer)
+		    res.add(containerHandler((HookContainer)extensions[i].ext));
+	    }
+	    handlers.put(name, res.toArray(new Handler[res.size()]));
+	}
+    }
+
+    boolean run(String hookName, HookContainer.HookRunner runner)
+    {
+	NullCheck.notEmpty(hookName, "hookName");
+	NullCheck.notNull(runner, "runner");
+	Handler[] h = handlers.get(hookName);
+	if (h == null)
+	    h = containers;
+	for(Handler handler: h)
+	    if (!handler.run(hookName, runner))
+		return false;
+	return true;
+    }
+
+    static private Handler containerHandler(HookContainer container)
+    {
+	return (hookName, runner)->container.runHooks(hookName, runner);
+    }
+
+    //Behaves like the running of the hooks in ScriptCore, the runner processes the result of the script under the lock of its module
+    static private Handler hookHandler(ModuleHook hook)
+    {
+	return (hookName, runner)->{
+	    try {
+		final HookContainer.HookResult res;
+		synchronized(hook.syncObj) {
+		    res = runner.runHook(hook.hook);
+		}
+		return res != null && res != HookContainer.HookResult.BREAK;
+	    }
+	    catch(Throwable e)
+	    {
+		Log.error(LOG_COMPONENT, "running of the hook '" + hookName + "' failed: " + e.getClass().getName() + ": " + e.getMessage());
+		return false;
+	    }
+	};
+    }
+}
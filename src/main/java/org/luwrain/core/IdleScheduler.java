@@ -0,0 +1,147 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.luwrain.core.events.*;
+
+/**
+ * Issues the IDLE system events when there is no user activity for some
+ * time. There are two levels of inactivity: the short one, issuing
+ * {@code SystemEvent.Code.IDLE}, and the long one, issuing 
+ * {@code SystemEvent.Code.LONG_IDLE}. Each level is issued only once
+ * after the last activity. All the work is done by one thread. The
+ * activity notification only updates the timestamp, unless the pending
+ * check is later than the new short deadline, e.g. after issuing of the
+ * short level, when the check is rescheduled.
+ */
+final class IdleScheduler
+{
+    static private final String LOG_COMPONENT = Base.LOG_COMPONENT;
+    static final int
+	DEFAULT_SHORT_DELAY = 1000,
+	DEFAULT_LONG_DELAY = 30000;
+
+    private final EventConsumer consumer;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor((r)->{
+	    final Thread t = new Thread(r, "luwrain-idle");
+	    t.setDaemon(true);
+	    return t;
+	});
+    private final AtomicLong generation = new AtomicLong(0);
+    private volatile long lastActivity = System.nanoTime();
+    private volatile long shortDelay = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SHORT_DELAY);
+    private volatile long longDelay = TimeUnit.MILLISECONDS.toNanos(DEFAULT_LONG_DELAY);
+
+    //Guarded by this
+    private ScheduledFuture pending = null;
+    private long pendingDeadline = 0;
+    private long pendingToken = 0;
+
+    //Accessed only by the scheduler thread
+    private long shortFiredGen = -1, longFiredGen = -1;
+
+    IdleScheduler(EventConsumer consumer)
+    {
+	NullCheck.notNull(consumer, "consumer");
+	this.consumer = consumer;
+    }
+
+    //Zero or negative values disable the corresponding level
+    void setDelays(int shortDelayMsec, int longDelayMsec)
+    {
+	this.shortDelay = shortDelayMsec > 0?TimeUnit.MILLISECONDS.toNanos(shortDelayMsec):0;
+	this.longDelay = longDelayMsec > 0?TimeUnit.MILLISECONDS.toNanos(longDelayMsec):0;
+	Log.debug(LOG_COMPONENT, "idle delays: " + shortDelayMsec + "ms and " + longDelayMsec + "ms");
+    }
+
+    //Notifies about the user activity, re-arms the idle timeouts
+    void touch()
+    {
+	final long now = System.nanoTime();
+	lastActivity = now;
+	generation.incrementAndGet();
+	final long s = shortDelay, l = longDelay;
+	if (s <= 0 && l <= 0)
+	    return;
+	final long deadline = now + (s > 0?s:l);
+	synchronized(this) {
+	    if (pending != null && pendingDeadline - deadline <= 0)
+		return;
+	    if (pending != null)
+		pending.cancel(false);
+	    schedule(deadline - now);
+	}
+    }
+
+    void close()
+    {
+	executor.shutdownNow();
+    }
+
+    //Must be called under the lock
+    private void schedule(long delay)
+    {
+	final long token = ++pendingToken;
+	try {
+	    this.pending = executor.schedule(()->check(token), delay, TimeUnit.NANOSECONDS);
+	    this.pendingDeadline = System.nanoTime() + delay;
+	}
+	catch(RejectedExecutionException e)
+	{
+	    this.pending = null;
+	}
+    }
+
+    private void check(long token)
+    {
+	synchronized(this) {
+	    //Replaced by the earlier check
+	    if (token != pendingToken)
+		return;
+	    this.pending = null;
+	}
+	final long gen = generation.get();
+	final long elapsed = System.nanoTime() - lastActivity;
+	final long s = shortDelay, l = longDelay;
+	if (s > 0 && shortFiredGen != gen && elapsed >= s)
+	{
+	    shortFiredGen = gen;
+	    consumer.enqueueEvent(new SystemEvent(SystemEvent.Code.IDLE));
+	}
+	if (l > 0 && longFiredGen != gen && elapsed >= l)
+	{
+	    longFiredGen = gen;
+	    consumer.enqueueEvent(new SystemEvent(SystemEvent.Code.LONG_IDLE));
+	}
+	//Looking for the nearest level to be issued
+	long next = -1;
+	if (s > 0 && shortFiredGen != gen)
+	    next = Math.max(0, s - elapsed);
+	if (l > 0 && longFiredGen != gen && (next < 0 || l - elapsed < next))
+	    next = Math.max(0, l - elapsed);
+	if (next < 0)
+	    return;
+	synchronized(this) {
+	    //The activity after reading the generation could schedule the check already
+	    if (pending == null)
+		schedule(next);
+	}
+    }
+}
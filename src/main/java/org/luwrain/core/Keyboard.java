@@ -20,6 +20,7 @@ import org.luwrain.core.events.*;
 
 class Keyboard
 {
+    //Returns the new instances, not the shared ones of InputEvent.of(), since the areas may put the event into the queue again
     static InputEvent translate(InputEvent event)
     {
 	NullCheck.notNull(event, "event");
@@ -63,7 +64,10 @@ return e;
 	{
 	    if (event.isSpecial())
 		return event;
-	    return new InputEvent(translateControlChar(event.getChar()), event.withShift(), event.withControl(), event.withAlt());
+	    final char c = translateControlChar(event.getChar());
+	    if (c == event.getChar())
+		return event;
+	    return new InputEvent(c, event.withShift(), event.withControl(), event.withAlt());
 	}
 
     static private char translateControlChar(char c)
@@ -0,0 +1,133 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * The histogram of latency values with logarithmic buckets. The values
+ * are stored in microseconds with the precision of 1/16 of the value
+ * (each power of two is split into 16 linear sub-buckets), what gives
+ * constant memory footprint and constant time of recording regardless of
+ * the number of the recorded values.
+ */
+final class LatencyHistogram
+{
+    static private final int
+	SUB_BUCKET_BITS = 4,
+	SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS,
+	MAX_SHIFT = 40,
+	BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_SHIFT + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong
+	totalCount = new AtomicLong(0),
+	totalValue = new AtomicLong(0),
+	maxValue = new AtomicLong(0);
+
+    void record(long nanos)
+    {
+	final long value = TimeUnit.NANOSECONDS.toMicros(nanos > 0?nanos:0);
+	counts.incrementAndGet(getBucketIndex(value));
+	totalCount.incrementAndGet();
+	totalValue.addAndGet(value);
+	long current = maxValue.get();
+	while(value > current && !maxValue.compareAndSet(current, value))
+	    current = maxValue.get();
+    }
+
+    long getCount()
+    {
+	return totalCount.get();
+    }
+
+    //In microseconds
+    long getMean()
+    {
+	final long count = totalCount.get();
+	return count > 0?totalValue.get() / count:0;
+    }
+
+    //In microseconds
+    long getMax()
+    {
+	return maxValue.get();
+    }
+
+    /**
+     * Returns the value below which the given share of the recorded values
+     * falls. The result is the upper bound of the bucket containing the
+     * percentile.
+     *
+     * @param percentile The percentile from 0 to 100
+     * @return The value in microseconds
+     */
+    long getPercentile(double percentile)
+    {
+	final long count = totalCount.get();
+	if (count == 0)
+	    return 0;
+	final long threshold = Math.max(1, (long)Math.ceil((percentile / 100.0) * count));
+	long sum = 0;
+	for(int i = 0;i < BUCKET_COUNT;i++)
+	{
+	    sum += counts.get(i);
+	    if (sum >= threshold)
+		return Math.min(getBucketUpperBound(i), maxValue.get());
+	}
+	return maxValue.get();
+    }
+
+    //Makes a line like "count 10, mean 1.2ms, p50 1.0ms, p90 2.1ms, p99 3.0ms, max 3.0ms"
+    String toSummary()
+    {
+	final StringBuilder b = new StringBuilder();
+	b.append("count ").append(getCount());
+	b.append(", mean ").append(formatMsec(getMean()));
+	b.append(", p50 ").append(formatMsec(getPercentile(50)));
+	b.append(", p90 ").append(formatMsec(getPercentile(90)));
+	b.append(", p99 ").append(formatMsec(getPercentile(99)));
+	b.append(", max ").append(formatMsec(getMax()));
+	return new String(b);
+    }
+
+    static int getBucketIndex(long value)
+    {
+	if (value < SUB_BUCKET_COUNT)
+	    return (int)value;
+	final int msb = 63 - Long.numberOfLeadingZeros(value);
+	final int shift = msb - SUB_BUCKET_BITS;
+	if (shift > MAX_SHIFT)
+	    return BUCKET_COUNT - 1;
+	return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + (int)((value >> shift) - SUB_BUCKET_COUNT);
+    }
+
+    static long getBucketUpperBound(int index)
+    {
+	if (index < SUB_BUCKET_COUNT)
+	    return index;
+	final int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+	final long mantissa = SUB_BUCKET_COUNT + (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+	return ((mantissa + 1) << shift) - 1;
+    }
+
+    static String formatMsec(long micros)
+    {
+	return (micros / 1000) + "." + ((micros % 1000) / 100) + "ms";
+    }
+}
@@ -79,6 +79,28 @@ public interface Luwrain extends PropertiesBase, HookContainer
 
     void announceActiveArea();
     Object callUiSafely(java.util.concurrent.Callable callable);
+
+    /**
+     * Executes the callable in the UI thread without waiting for the
+     * result. The calling thread may continue its work and take the result
+     * from the returned future later. If this method is called in the UI
+     * thread, the callable is executed immediately.
+     *
+     * @param callable The callable to execute
+     * @return The future completed with the result of the callable or with the exception it has thrown
+     */
+    <T> java.util.concurrent.CompletableFuture<T> callUiAsync(java.util.concurrent.Callable<T> callable);
+
+    /**
+     * Executes several callables in the UI thread in the scope of one
+     * event. The callables are executed in the order they are provided,
+     * the failure of any of them completes the returned future
+     * exceptionally and skips the remaining ones.
+     *
+     * @param callables The callables to execute
+     * @return The future completed with the array of the results in the same order as the callables
+     */
+    java.util.concurrent.CompletableFuture<Object[]> callUiAsync(java.util.concurrent.Callable[] callables);
     void closeApp();
     void crash(org.luwrain.app.crash.App app);
     void crash(Throwable e);
@@ -120,6 +142,15 @@ public interface Luwrain extends PropertiesBase, HookContainer
 
     //Never returns null, doesn't take empty strings
     UniRefInfo getUniRefInfo(String uniRef);
+
+    /**
+     * Runs the task in the background thread. If the runnable is a
+     * {@code Future}, it is cancelled together with the task on unloading
+     * the extension or if the task is queued and can't be started later.
+     *
+     * @param runnable The task to run
+     * @throws java.util.concurrent.RejectedExecutionException if there are too many tasks and the new one can't be queued
+     */
     void executeBkg(Runnable runnable);
     org.luwrain.i18n.I18n i18n();
     void launchApp(String shortcutName);
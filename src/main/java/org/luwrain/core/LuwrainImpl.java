@@ -582,6 +582,22 @@ final class LuwrainImpl implements Luwrain
 	    return runLaterSync(callable);
     }
 
+    @Override public <T> CompletableFuture<T> callUiAsync(Callable<T> callable)
+    {
+	NullCheck.notNull(callable, "callable");
+	return Core.AsyncCallableEvent.call(callable, core.isMainCoreThread(), core::enqueueEvent);
+    }
+
+    @Override public CompletableFuture<Object[]> callUiAsync(Callable[] callables)
+    {
+	NullCheck.notNullItems(callables, "callables");
+	final Core.AsyncCallableEvent event = new Core.AsyncCallableEvent(callables);
+	if (core.isMainCoreThread())
+	    event.call(); else
+	    core.enqueueEvent(event);
+	return event.future;
+    }
+
     @Override public int xGetSpeechRate()
     {
 	core.mainCoreThreadOnly();
@@ -675,8 +691,7 @@ final class LuwrainImpl implements Luwrain
     @Override public void executeBkg(Runnable runnable)
     {
 	NullCheck.notNull(runnable, "runnable");
-	//FIXME:maintaining the registry of executed tasks with their associations to Luwrain objects
-	new Thread(()->{
+	final boolean res = core.bkg.execute(this, ()->{
 		try {
 		    runnable.run();
 		}
@@ -685,7 +700,13 @@ final class LuwrainImpl implements Luwrain
 		    Log.debug(LOG_COMPONENT, "An exception in background thread: " + e.getClass().getName() + ": " + e.getMessage());
 		    crash(e);
 		}
-	}).start();
+	    }, (runnable instanceof Future)?(Future)runnable:null);
+	if (!res)
+	{
+	    if (runnable instanceof Future)
+		((Future)runnable).cancel(false);
+	    throw new RejectedExecutionException("The background task is rejected, there are too many tasks");
+	}
     }
 
     @Override public boolean registerExtObj(ExtensionObject extObj)
@@ -729,7 +750,8 @@ final class LuwrainImpl implements Luwrain
     @Override public void showGraphical(Interaction.GraphicalMode graphicalMode)
     {
 	NullCheck.notNull(graphicalMode, "graphicalMode");
-	core.interaction.showGraphical(graphicalMode);
+	core.windowManager.invokeInteraction(()->core.interaction.showGraphical(graphicalMode));
+	core.windowManager.invalidate();
     }
 
     @Override public     ScriptFile[] getScriptFilesList(String componentName)
@@ -751,7 +773,9 @@ final class LuwrainImpl implements Luwrain
 	final LangStatic staticStrId = EventResponses.hintToStaticStrMap(hint);
 	if (staticStrId == null)
 	    return;
-	speak(i18n().staticStr(staticStrId), Speech.PITCH_HINT);
+	final String text = i18n().staticStr(staticStrId);
+	core.braille.textToSpeak(text);
+	core.speech.speak(core.speakingText.processRegular(text), Speech.PITCH_HINT, 0, SpeechScheduler.Priority.HINT);
     }
 
     private void runInMainThread(Runnable runnable)
@@ -0,0 +1,142 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Draws the frames of the screen on the interaction in a separate thread,
+ * so the main thread never waits for the interaction. The main thread
+ * only submits the immutable frames. Only the latest submitted frame is
+ * drawn, the frames superseded before the thread gets to them are
+ * skipped. All other calls of the interaction, which may change the
+ * screen, must be made through {@link #invoke(Runnable)} while the thread
+ * is running, so they never overlap with the drawing.
+ */
+final class RenderThread
+{
+    static private final String LOG_COMPONENT = Base.LOG_COMPONENT;
+    static private final int CLOSE_TIMEOUT = 1000;
+
+    private final Interaction interaction;
+    private final ScreenBuffer.Painter painter = new ScreenBuffer.Painter();
+    private final AtomicReference<ScreenBuffer.Frame> pending = new AtomicReference<>();
+    private final ExecutorService executor;
+    private final AtomicLong submittedCount = new AtomicLong(0);
+    private final AtomicLong skippedCount = new AtomicLong(0);
+
+    RenderThread(Interaction interaction)
+    {
+	NullCheck.notNull(interaction, "interaction");
+	this.interaction = interaction;
+	this.executor = Executors.newSingleThreadExecutor((r)->{
+		final Thread t = new Thread(r, "luwrain-render");
+		t.setDaemon(true);
+		return t;
+	    });
+    }
+
+    void submit(ScreenBuffer.Frame frame)
+    {
+	NullCheck.notNull(frame, "frame");
+	submittedCount.incrementAndGet();
+	//The drawing task is already scheduled, if there is a pending frame, and it will take the new one
+	if (pending.getAndSet(frame) != null)
+	{
+	    skippedCount.incrementAndGet();
+	    return;
+	}
+	try {
+	    executor.execute(this::paint);
+	}
+	catch(RejectedExecutionException e)
+	{
+	    Log.warning(LOG_COMPONENT, "the frame is submitted after closing the render thread");
+	}
+    }
+
+    //Runs the action in the render thread after drawing the frames submitted before the call and waits for its completion
+    void invoke(Runnable action)
+    {
+	NullCheck.notNull(action, "action");
+	final Future<?> res;
+	try {
+	    res = executor.submit(action);
+	}
+	catch(RejectedExecutionException e)
+	{
+	    Log.warning(LOG_COMPONENT, "the render thread is closed, running the interaction call in the current thread");
+	    action.run();
+	    return;
+	}
+	try {
+	    res.get();
+	}
+	catch(InterruptedException e)
+	{
+	    Thread.currentThread().interrupt();
+	}
+	catch(ExecutionException e)
+	{
+	    final Throwable cause = e.getCause();
+	    if (cause instanceof RuntimeException)
+		throw (RuntimeException)cause;
+	    if (cause instanceof Error)
+		throw (Error)cause;
+	    throw new RuntimeException(cause);
+	}
+    }
+
+    //Draws the frames submitted before the call and stops the thread
+    void close()
+    {
+	executor.shutdown();
+	try {
+	    if (!executor.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS))
+		Log.warning(LOG_COMPONENT, "the render thread hasn't finished in " + CLOSE_TIMEOUT + "ms");
+	}
+	catch(InterruptedException e)
+	{
+	    Thread.currentThread().interrupt();
+	}
+    }
+
+    long getSubmittedCount()
+    {
+	return submittedCount.get();
+    }
+
+    long getSkippedCount()
+    {
+	return skippedCount.get();
+    }
+
+    private void paint()
+    {
+	final ScreenBuffer.Frame frame = pending.getAndSet(null);
+	if (frame == null)
+	    return;
+	try {
+	    painter.paint(frame, interaction);
+	}
+	catch(Throwable e)
+	{
+	    Log.error(LOG_COMPONENT, "unable to draw the frame: " + e.getClass().getName() + ": " + e.getMessage());
+	}
+    }
+}
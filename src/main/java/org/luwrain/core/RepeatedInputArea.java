@@ -0,0 +1,45 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+//LWR_API 1.0
+
+package org.luwrain.core;
+
+import org.luwrain.core.events.*;
+
+/**
+ * An optional interface for areas able to process a run of the same
+ * navigational keystroke at once. When the user holds an arrow key,
+ * the keystrokes are queued faster than they are processed, and the core
+ * folds the identical ones into a single call of 
+ * {@code onRepeatedInputEvent()}. The area is expected to move the hot point
+ * the required number of times and to announce the final position only.
+ * <p>
+ * The core does that only for unmodified arrows and page keys (including
+ * their alternative variants), and only if the action keys of the area
+ * don't intercept the event.
+ */
+public interface RepeatedInputArea extends Area
+{
+    /**
+     * Processes the input event repeated several times in a row.
+     *
+     * @param event The repeated event
+     * @param repeatCount The number of repetitions, always greater than one
+     * @return True if the event was processed, false otherwise
+     */
+    boolean onRepeatedInputEvent(InputEvent event, int repeatCount);
+}
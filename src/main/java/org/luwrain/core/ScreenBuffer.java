@@ -0,0 +1,383 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import java.util.*;
+
+/**
+ * The character grid of the screen. The frame is composed with the
+ * methods similar to the methods of {@link Interaction}, and then taken
+ * as an immutable {@link Frame} with {@link #snapshot()}. The frames are
+ * drawn by the {@link Painter}, which retains the content of the last
+ * drawn frame and sends to the interaction only the runs of the cells
+ * which differ from it. If nothing has changed, no draw session is
+ * started at all.
+ * <p>
+ * The rows of the grid are shared with the taken frames and copied only
+ * on the next modification, so taking a snapshot doesn't copy the
+ * unchanged rows.
+ */
+final class ScreenBuffer
+{
+    static final byte
+	TEXT = 0,
+	TEXT_FONT2 = 1,
+	VERTICAL_LINE = 2,
+	HORIZONTAL_LINE = 3;
+
+    //The number of the unchanged cells which may be included into a run to avoid one more draw call
+    static private final int MERGE_GAP = 3;
+
+    private int width = 0, height = 0;
+    private char[][] chars = new char[0][];
+    private byte[][] attrs = new byte[0][];
+    private boolean[] shared = new boolean[0];
+    private int hotPointX = -1, hotPointY = -1;
+    private long invalidation = 0;
+    private boolean modified = true;
+    private final Painter painter = new Painter();
+
+    //Must be called before composing every frame, resets the buffer if the size of the screen has changed
+    void begin(int width, int height)
+    {
+	if (width == this.width && height == this.height)
+	    return;
+	this.width = Math.max(width, 0);
+	this.height = Math.max(height, 0);
+	this.chars = new char[this.height][this.width];
+	this.attrs = new byte[this.height][this.width];
+	this.shared = new boolean[this.height];
+	for(int y = 0;y < this.height;y++)
+	    Arrays.fill(chars[y], ' ');
+	this.modified = true;
+    }
+
+    void clearRect(int left, int top, int right, int bottom)
+    {
+	for(int y = Math.max(top, 0);y <= bottom && y < height;y++)
+	{
+	    own(y);
+	    for(int x = Math.max(left, 0);x <= right && x < width;x++)
+	    {
+		chars[y][x] = ' ';
+		attrs[y][x] = TEXT;
+	    }
+	}
+    }
+
+    void drawText(int x, int y, String text, boolean font2)
+    {
+	NullCheck.notNull(text, "text");
+	if (y < 0 || y >= height)
+	    return;
+	own(y);
+	final byte attr = font2?TEXT_FONT2:TEXT;
+	for(int i = 0;i < text.length();i++)
+	{
+	    final int pos = x + i;
+	    if (pos < 0)
+		continue;
+	    if (pos >= width)
+		break;
+	    chars[y][pos] = text.charAt(i);
+	    attrs[y][pos] = attr;
+	}
+    }
+
+    void drawVerticalLine(int top, int bottom, int x)
+    {
+	if (x < 0 || x >= width)
+	    return;
+	for(int y = Math.max(top, 0);y <= bottom && y < height;y++)
+	{
+	    own(y);
+	    chars[y][x] = ' ';
+	    attrs[y][x] = VERTICAL_LINE;
+	}
+    }
+
+    void drawHorizontalLine(int left, int right, int y)
+    {
+	if (y < 0 || y >= height)
+	    return;
+	own(y);
+	for(int x = Math.max(left, 0);x <= right && x < width;x++)
+	{
+	    chars[y][x] = ' ';
+	    attrs[y][x] = HORIZONTAL_LINE;
+	}
+    }
+
+    void setHotPoint(int x, int y)
+    {
+	if (x == hotPointX && y == hotPointY)
+	    return;
+	this.hotPointX = x;
+	this.hotPointY = y;
+	this.modified = true;
+    }
+
+    //The next frame repaints the entire screen
+    void invalidate()
+    {
+	this.invalidation++;
+	this.modified = true;
+    }
+
+    //True if anything has been drawn since the last snapshot; the drawn content may still be the same
+    boolean isModified()
+    {
+	return modified;
+    }
+
+    Frame snapshot()
+    {
+	final char[][] frameChars = new char[height][];
+	final byte[][] frameAttrs = new byte[height][];
+	for(int y = 0;y < height;y++)
+	{
+	    frameChars[y] = chars[y];
+	    frameAttrs[y] = attrs[y];
+	    shared[y] = true;
+	}
+	this.modified = false;
+	return new Frame(width, height, frameChars, frameAttrs, hotPointX, hotPointY, invalidation);
+    }
+
+    /**
+     * Draws the composed frame on the interaction in the current thread.
+     *
+     * @param interaction The interaction to draw on
+     * @return True if anything has been drawn, false otherwise
+     */
+    boolean flush(Interaction interaction)
+    {
+	NullCheck.notNull(interaction, "interaction");
+	return painter.paint(snapshot(), interaction);
+    }
+
+    long getDrawCalls()
+    {
+	return painter.getDrawCalls();
+    }
+
+    int getWidth()
+    {
+	return width;
+    }
+
+    int getHeight()
+    {
+	return height;
+    }
+
+    //Copies the row, if it is referenced by any of the taken frames
+    private void own(int y)
+    {
+	modified = true;
+	if (!shared[y])
+	    return;
+	chars[y] = chars[y].clone();
+	attrs[y] = attrs[y].clone();
+	shared[y] = false;
+    }
+
+    //The composed content of the screen, never modified after construction
+    static final class Frame
+    {
+	final int width, height;
+	private final char[][] chars;
+	private final byte[][] attrs;
+	final int hotPointX, hotPointY;
+	final long invalidation;
+	private Frame(int width, int height, char[][] chars, byte[][] attrs, int hotPointX, int hotPointY, long invalidation)
+	{
+	    this.width = width;
+	    this.height = height;
+	    this.chars = chars;
+	    this.attrs = attrs;
+	    this.hotPointX = hotPointX;
+	    this.hotPointY = hotPointY;
+	    this.invalidation = invalidation;
+	}
+	char getChar(int x, int y)
+	{
+	    return chars[y][x];
+	}
+	byte getAttr(int x, int y)
+	{
+	    return attrs[y][x];
+	}
+    }
+
+    /**
+     * Draws the frames on the interaction. Since the painter compares every
+     * frame with the last drawn one, the frames between them may be skipped
+     * freely. The painter must be used by one thread only.
+     */
+    static final class Painter
+    {
+	private int width = -1, height = -1;
+	private char[][] shownChars = new char[0][];
+	private byte[][] shownAttrs = new byte[0][];
+	private int shownHotPointX = -1, shownHotPointY = -1;
+	private long shownInvalidation = 0;
+	private boolean clearAll = true;
+	private long drawCalls = 0;
+
+	boolean paint(Frame frame, Interaction interaction)
+	{
+	    NullCheck.notNull(frame, "frame");
+	    NullCheck.notNull(interaction, "interaction");
+	    if (frame.width != width || frame.height != height)
+	    {
+		this.width = frame.width;
+		this.height = frame.height;
+		this.shownChars = new char[height][width];
+		this.shownAttrs = new byte[height][width];
+		this.shownHotPointX = -1;
+		this.shownHotPointY = -1;
+		this.clearAll = true;
+	    }
+	    if (frame.invalidation != shownInvalidation)
+	    {
+		this.shownInvalidation = frame.invalidation;
+		this.shownHotPointX = -1;
+		this.shownHotPointY = -1;
+		this.clearAll = true;
+	    }
+	    boolean started = false;
+	    if (clearAll && width > 0 && height > 0)
+	    {
+		interaction.startDrawSession();
+		started = true;
+		interaction.clearRect(0, 0, width - 1, height - 1);
+		drawCalls++;
+		for(int y = 0;y < height;y++)
+		{
+		    Arrays.fill(shownChars[y], ' ');
+		    Arrays.fill(shownAttrs[y], TEXT);
+		}
+		clearAll = false;
+	    }
+	    for(int y = 0;y < height;y++)
+	    {
+		int x = 0;
+		while(x < width)
+		{
+		    if (isSame(frame, x, y))
+		    {
+			x++;
+			continue;
+		    }
+		    final int start = x;
+		    int end = x;
+		    int gap = 0;
+		    for(x = x + 1;x < width;x++)
+		    {
+			if (!isSame(frame, x, y))
+			{
+			    end = x;
+			    gap = 0;
+			    continue;
+			}
+			gap++;
+			if (gap > MERGE_GAP)
+			    break;
+		    }
+		    if (!started)
+		    {
+			interaction.startDrawSession();
+			started = true;
+		    }
+		    drawRun(frame, interaction, y, start, end);
+		    x = end + 1;
+		}
+	    }
+	    if (frame.hotPointX != shownHotPointX || frame.hotPointY != shownHotPointY)
+	    {
+		if (!started)
+		{
+		    interaction.startDrawSession();
+		    started = true;
+		}
+		interaction.setHotPoint(frame.hotPointX, frame.hotPointY);
+		drawCalls++;
+		shownHotPointX = frame.hotPointX;
+		shownHotPointY = frame.hotPointY;
+	    }
+	    if (started)
+		interaction.endDrawSession();
+	    return started;
+	}
+
+	long getDrawCalls()
+	{
+	    return drawCalls;
+	}
+
+	private void drawRun(Frame frame, Interaction interaction, int y, int start, int end)
+	{
+	    interaction.clearRect(start, y, end, y);
+	    drawCalls++;
+	    final char[] chars = frame.chars[y];
+	    final byte[] attrs = frame.attrs[y];
+	    int x = start;
+	    while(x <= end)
+	    {
+		final byte attr = attrs[x];
+		int segEnd = x;
+		while(segEnd + 1 <= end && attrs[segEnd + 1] == attr)
+		    segEnd++;
+		switch(attr)
+		{
+		case VERTICAL_LINE:
+		    for(int i = x;i <= segEnd;i++)
+			interaction.drawVerticalLine(y, y, i);
+		    drawCalls += segEnd - x + 1;
+		    break;
+		case HORIZONTAL_LINE:
+		    interaction.drawHorizontalLine(x, segEnd, y);
+		    drawCalls++;
+		    break;
+		default:
+		    if (!isBlank(chars, x, segEnd))
+		    {
+			interaction.drawText(x, y, new String(chars, x, segEnd - x + 1), attr == TEXT_FONT2);
+			drawCalls++;
+		    }
+		}
+		x = segEnd + 1;
+	    }
+	    System.arraycopy(chars, start, shownChars[y], start, end - start + 1);
+	    System.arraycopy(attrs, start, shownAttrs[y], start, end - start + 1);
+	}
+
+	private boolean isSame(Frame frame, int x, int y)
+	{
+	    return frame.chars[y][x] == shownChars[y][x] && frame.attrs[y][x] == shownAttrs[y][x];
+	}
+
+	static private boolean isBlank(char[] chars, int from, int to)
+	{
+	    for(int i = from;i <= to;i++)
+		if (chars[i] != ' ')
+		    return false;
+	    return true;
+	}
+    }
+}
@@ -27,6 +27,7 @@ class ScreenContentManager
 
     private AppManager apps;
     private boolean activePopup = false;
+    private TileManager windows = null;
 
     public ScreenContentManager(AppManager apps)
     {
@@ -181,7 +182,21 @@ class ScreenContentManager
 	}
     }
 
+    //Must be called on every change of the applications, the layouts or the popups
+    void invalidateWindows()
+    {
+	this.windows = null;
+    }
+
+    //The result is cached until invalidateWindows() is called, the window manager relies on that to keep its geometry
     TileManager getWindows()
+    {
+	if (this.windows == null)
+	    this.windows = constructWindows();
+	return this.windows;
+    }
+
+    private TileManager constructWindows()
     {
 	TileManager windows;
 	final Application activeApp = apps.getActiveApp();
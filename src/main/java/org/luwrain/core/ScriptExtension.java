@@ -63,6 +63,11 @@ final class ScriptExtension implements Extension, org.luwrain.core.HookContainer
 	return scriptCore.runHooks(hookName, runner);
     }
 
+    Map<String, List<ScriptCore.ModuleHook>> getHooks()
+    {
+	return scriptCore != null?scriptCore.getHooks():new HashMap<>();
+    }
+
     @Override public ExtensionObject[] getExtObjects(Luwrain luwrain)
     {
 	return scriptCore.getExtObjects();
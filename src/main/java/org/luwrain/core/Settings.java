@@ -53,6 +53,20 @@ public interface Settings
 	void setMainMenuContent(String value);
 	String getWindowTitle(String defValue);
 	void setWindowTitle(String value);
+	int getIdleDelay(int defValue);
+	void setIdleDelay(int value);
+	int getLongIdleDelay(int defValue);
+	void setLongIdleDelay(int value);
+	int getStallThreshold(int defValue);
+	void setStallThreshold(int value);
+	int getBkgMaxThreads(int defValue);
+	void setBkgMaxThreads(int value);
+	int getBkgMaxTasksPerOwner(int defValue);
+	void setBkgMaxTasksPerOwner(int value);
+	int getBkgMaxPendingPerOwner(int defValue);
+	void setBkgMaxPendingPerOwner(int value);
+	boolean getRenderThread(boolean defValue);
+	void setRenderThread(boolean value);
     }
 
         static public UserInterface createUserInterface(Registry registry)
@@ -189,6 +203,7 @@ public interface Settings
 	String getAnnouncement(String defValue);
 	String getAttention(String defValue);
 	String getBlocked(String defValue);
+	String getBusy(String defValue);
 	String getCancel(String defValue);
 	String getChatMessage(String defValue);
 	String getCollapsed(String defValue);
@@ -235,6 +250,7 @@ public interface Settings
 	void setAnnouncement(String defValue);
 	void setAttention(String value);
 	void setBlocked(String value);
+	void setBusy(String value);
 	void setCancel(String value);
 	void setChatMessage(String value);
 	void setCollapsed(String value);
@@ -283,6 +299,8 @@ public interface Settings
     {
 	boolean getEnabled(boolean defValue);
 	void setEnabled(boolean value);
+	int getRefreshInterval(int defValue);
+	void setRefreshInterval(int value);
     }
 
     public interface SpeechParams
@@ -293,6 +311,9 @@ public interface Settings
 	String getListeningEngineParams(String defValue);
 	int getListeningPitch(int defValue);
 	int getListeningRate(int defValue);
+	int getListeningLookAhead(int defValue);
+	boolean getSynthCache(boolean defValue);
+	int getSynthCacheSize(int defValue);
 	int getPitch(int defValue);
 	int getRate(int defValue);
 	void setMainEngineName(String value);
@@ -301,6 +322,9 @@ public interface Settings
 	void setListeningEngineParams(String params);
 	void setListeningPitch(int value);
 	void setListeningRate(int value);
+	void setListeningLookAhead(int value);
+	void setSynthCache(boolean value);
+	void setSynthCacheSize(int value);
 	void setPitch(int value);
 	void setRate(int value);
     }
@@ -24,6 +24,7 @@ public enum Sounds
     ANNOUNCEMENT,
     ATTENTION,
     BLOCKED,
+    BUSY,
     CANCEL,
     CHAT_MESSAGE,
     CLICK,
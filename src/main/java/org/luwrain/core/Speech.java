@@ -17,6 +17,9 @@
 package org.luwrain.core;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+import javax.sound.sampled.AudioFormat;
 
 import org.luwrain.speech.*;
 
@@ -30,15 +33,30 @@ public final class Speech
     private final CmdLine cmdLine;
     private final Settings.SpeechParams sett;
     private final Map<String, Engine> engines = new HashMap<>();
+    final SpeechLatency latency = new SpeechLatency();
+    private final SpeechScheduler scheduler;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor((r)->{
+	    final Thread t = new Thread(r, "luwrain-speech-timer");
+	    t.setDaemon(true);
+	    return t;
+	});
     private Channel defaultChannel = null;
+    private String defaultEngineName = null;
+    private Map<String, String> defaultParams = null;
+    private SpeechCache cache = null;
     private int pitch = 50;
     private int rate = 50;
+    //True while processing the input event, i.e. the speech is caused by the user
+    private boolean inputEvent = false;
 
-    Speech(CmdLine cmdLine, Registry registry)
+    Speech(CmdLine cmdLine, Registry registry, EventConsumer eventConsumer)
     {
 	NullCheck.notNull(cmdLine, "cmdLine");
 	NullCheck.notNull(registry, "registry");
+	NullCheck.notNull(eventConsumer, "eventConsumer");
 	this.cmdLine = cmdLine;
+	this.scheduler = new SpeechScheduler(this::output, (r)->eventConsumer.enqueueEvent(new EventDispatching.RunnableEvent(r)),
+					     (r, delay)->timer.schedule(r, delay, TimeUnit.MILLISECONDS));
 	this.sett = Settings.createSpeechParams(registry);
 	this.pitch = sett.getPitch(this.pitch);
 	this.rate = sett.getRate(this.rate);
@@ -92,11 +110,36 @@ public final class Speech
 	    }
 	}
 	this.defaultChannel = loadChannel(engineName, params);
+	this.defaultEngineName = engineName;
+	this.defaultParams = params;
+	scheduler.setNotifying(getEngineFeatures(engineName).contains(Engine.Features.CAN_NOTIFY_WHEN_FINISHED));
 	if (defaultChannel != null)
 	    Log.info(LOG_COMPONENT, "main speech engine is \'" + engineName + "\'"); else
 	    Log.error(LOG_COMPONENT, "unable to load the default channel of the engine \'" + engineName + "\'");
     }
 
+    //Must be called after init(), does nothing if the cache is disabled or the main engine can't synthesize to a stream
+    void initCache(File dir)
+    {
+	NullCheck.notNull(dir, "dir");
+	if (defaultChannel == null || !sett.getSynthCache(false))
+	    return;
+	if (!getEngineFeatures(defaultEngineName).contains(Engine.Features.CAN_SYNTH_TO_STREAM))
+	{
+	    Log.warning(LOG_COMPONENT, "the speech cache is enabled, but the engine \'" + defaultEngineName + "\' can't synthesize to a stream");
+	    return;
+	}
+	final AudioFormat[] formats = defaultChannel.getSynthSupportedFormats();
+	if (formats == null || formats.length == 0 || formats[0] == null)
+	    return;
+	final Channel renderChannel = loadChannel(defaultEngineName, defaultParams);
+	if (renderChannel == null)
+	    return;
+	final int maxSizeMb = sett.getSynthCacheSize(SpeechCache.DEFAULT_MAX_SIZE_MB);
+	this.cache = new SpeechCache(dir, (maxSizeMb > 0?maxSizeMb:SpeechCache.DEFAULT_MAX_SIZE_MB) * 1024L * 1024L, defaultEngineName, defaultParams, renderChannel, formats[0]);
+	Log.debug(LOG_COMPONENT, "the speech cache is in " + dir.getAbsolutePath());
+    }
+
         public Channel loadChannel(String engineName, String paramsLine)
     {
 	NullCheck.notEmpty(engineName, "engineName");
@@ -107,6 +150,17 @@ public final class Speech
 	return loadChannel(engineName, params);
     }
 
+    //Returns an empty set, if there is no such engine
+    public Set<Engine.Features> getEngineFeatures(String engineName)
+    {
+	NullCheck.notEmpty(engineName, "engineName");
+	final Engine engine = engines.get(engineName);
+	if (engine == null)
+	    return EnumSet.noneOf(Engine.Features.class);
+	final Set<Engine.Features> res = engine.getFeatures();
+	return res != null?res:EnumSet.noneOf(Engine.Features.class);
+    }
+
     private Channel loadChannel(String engineName, Map<String, String> params)
     {
 	NullCheck.notEmpty(engineName, "engineName");
@@ -119,39 +173,75 @@ public final class Speech
 	return engines.get(engineName).newChannel(params);
     }
 
-    //Always cancels any previous text to speak
+    //Cancels any previous text to speak, if called while processing the input event, otherwise is spoken as a notification
     public void speak(String text, int relPitch, int relRate)
+    {
+	speak(text, relPitch, relRate, inputEvent?SpeechScheduler.Priority.EVENT_RESPONSE:SpeechScheduler.Priority.NOTIFICATION);
+    }
+
+    void speak(String text, int relPitch, int relRate, SpeechScheduler.Priority priority)
     {
 	NullCheck.notNull(text, "text");
+	NullCheck.notNull(priority, "priority");
 	if (defaultChannel == null || text.isEmpty())
 	    return;
-	defaultChannel.speak(text, null, makePitch(relPitch), makeRate(relRate), true);
+	scheduler.speak(new SpeechScheduler.Utterance(priority, text, makePitch(relPitch), makeRate(relRate), latency.onSpeak()), inputEvent);
     }
 
-    //Always cancels any previous text to speak
     public void speakEventResponse(String text)
     {
-	NullCheck.notNull(text, "text");
-	if (defaultChannel == null || text.isEmpty())
-	    return;
-	defaultChannel.speak(text, null, makePitch(0), makeRate(0), true);
+	speak(text, 0, 0, SpeechScheduler.Priority.EVENT_RESPONSE);
     }
 
-    //Always cancels any previous text to speak
     public void speakLetter(char letter, int relPitch, int relRate)
     {
 	if (defaultChannel == null)
 	    return;
-	defaultChannel.speakLetter(letter, null, makePitch(relPitch), makeRate(relRate), true);
+	final SpeechScheduler.Priority priority = inputEvent?SpeechScheduler.Priority.EVENT_RESPONSE:SpeechScheduler.Priority.NOTIFICATION;
+	scheduler.speak(new SpeechScheduler.Utterance(priority, letter, makePitch(relPitch), makeRate(relRate), latency.onSpeak()), inputEvent);
     }
 
     void silence()
     {
 	if (defaultChannel == null)
 	    return;
+	scheduler.clear();
+	if (cache != null)
+	    cache.stop();
 	defaultChannel.silence();
     }
 
+    boolean isInputEvent()
+    {
+	return inputEvent;
+    }
+
+    //Called by the event loop, the popups restore the previous value on closing
+    void setInputEvent(boolean inputEvent)
+    {
+	this.inputEvent = inputEvent;
+    }
+
+    //Speaks the utterance chosen by the scheduler
+    private void output(SpeechScheduler.Utterance u, Channel.Listener listener, boolean cancelPrevious)
+    {
+	final long startTime = System.nanoTime();
+	if (u.isLetter())
+	{
+	    if (cancelPrevious && cache != null)
+		cache.stop();
+	    defaultChannel.speakLetter(u.letter, listener, u.pitch, u.rate, cancelPrevious);
+	} else
+	    if (cancelPrevious && cache != null && cache.play(u.text, defaultChannel.getVoiceName(), u.pitch, u.rate, listener))
+		defaultChannel.silence(); else
+	    {
+		if (cancelPrevious && cache != null)
+		    cache.stop();
+		defaultChannel.speak(u.text, listener, u.pitch, u.rate, cancelPrevious);
+	    }
+	latency.onChannelCall(System.nanoTime() - startTime);
+    }
+
     int getRate()
     {
 	return rate;
@@ -0,0 +1,327 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.io.*;
+import java.nio.file.*;
+import javax.sound.sampled.*;
+
+import org.luwrain.speech.*;
+import org.luwrain.util.*;
+
+/**
+ * The disk cache of the synthesized short phrases. A phrase is
+ * synthesized with a separate channel of the same engine, after it has
+ * been spoken through the main channel several times, and then it is
+ * played from the cache directly through the audio line, which is kept
+ * open between the phrases. The cache is keyed by the engine, its
+ * parameters, the voice, the pitch, the rate, the audio format and the
+ * text, and is limited by the total size of the files, removing the least
+ * recently played ones. The phrases are checked and queued for playing in
+ * the main thread, the rest of the work is done in two separate threads.
+ */
+final class SpeechCache
+{
+    static private final String LOG_COMPONENT = Base.LOG_COMPONENT;
+    static private final String SUFFIX = ".pcm";
+    static final int
+	MAX_TEXT_LEN = 64,
+	DEFAULT_MAX_SIZE_MB = 64;
+    static private final int
+	RENDER_AFTER_COUNT = 2,
+	MAX_COUNTED_PHRASES = 4096,
+	WRITE_BLOCK_SIZE = 4096;
+
+    private final File dir;
+    private final long maxSize;
+    private final String engineName;
+    //The parameters of the engine sorted by the names, so their order doesn't change the key
+    private final String engineParams;
+    private final Channel renderChannel;
+    private final AudioFormat format;
+    private final String formatStr;
+    private final ExecutorService renderExecutor = createExecutor("luwrain-speech-cache");
+    private final ExecutorService playExecutor = createExecutor("luwrain-speech-play");
+
+    //The names of the files by their sizes, in the order of playing
+    private final LinkedHashMap<String, Long> files = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalSize = 0;
+    //How many times the phrases not in the cache have been spoken
+    private final LinkedHashMap<String, Integer> counts = new LinkedHashMap<String, Integer>(256, 0.75f, true){
+	    @Override protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest)
+	    {
+		return size() > MAX_COUNTED_PHRASES;
+	    }
+	};
+
+    //Increased on every stop, the playing of the older phrases is interrupted
+    private final AtomicLong playGeneration = new AtomicLong(0);
+    private SourceDataLine line = null;
+
+    SpeechCache(File dir, long maxSize, String engineName, Map<String, String> engineParams, Channel renderChannel, AudioFormat format)
+    {
+	NullCheck.notNull(dir, "dir");
+	NullCheck.notEmpty(engineName, "engineName");
+	NullCheck.notNull(engineParams, "engineParams");
+	NullCheck.notNull(renderChannel, "renderChannel");
+	NullCheck.notNull(format, "format");
+	if (maxSize <= 0)
+	    throw new IllegalArgumentException("maxSize (" + maxSize + ") must be greater than zero");
+	this.dir = dir;
+	this.maxSize = maxSize;
+	this.engineName = engineName;
+	this.engineParams = new TreeMap<String, String>(engineParams).toString();
+	this.renderChannel = renderChannel;
+	this.format = format;
+	this.formatStr = format.toString();
+	renderExecutor.execute(this::loadIndex);
+    }
+
+    /**
+     * Plays the phrase from the cache, if it is there. The previous phrase
+     * played from the cache is interrupted.
+     *
+     * @return True if the phrase is taken from the cache, false if it must be spoken by the channel
+     */
+    boolean play(String text, String voiceName, int pitch, int rate, Channel.Listener listener)
+    {
+	NullCheck.notNull(text, "text");
+	if (text.length() > MAX_TEXT_LEN)
+	    return false;
+	final String voice = voiceName != null?voiceName:"";
+	final String name = getFileName(text, voice, pitch, rate);
+	final boolean found;
+	final boolean render;
+	synchronized(this) {
+	    found = files.get(name) != null;
+	    if (!found)
+	    {
+		final Integer count = counts.get(name);
+		final int newCount = count != null?count.intValue() + 1:1;
+		render = (newCount == RENDER_AFTER_COUNT);
+		counts.put(name, Integer.valueOf(newCount));
+	    } else
+		render = false;
+	}
+	if (!found)
+	{
+	    if (render)
+		renderExecutor.execute(()->render(name, text, voice, pitch, rate));
+	    return false;
+	}
+	final long generation = playGeneration.incrementAndGet();
+	stopLine();
+	playExecutor.execute(()->play(name, generation, listener));
+	return true;
+    }
+
+    //Interrupts the playing of the phrase from the cache
+    void stop()
+    {
+	playGeneration.incrementAndGet();
+	stopLine();
+    }
+
+    private void play(String name, long generation, Channel.Listener listener)
+    {
+	if (generation != playGeneration.get())
+	    return;
+	final File file = new File(dir, name);
+	final byte[] data;
+	try {
+	    data = Files.readAllBytes(file.toPath());
+	}
+	catch(IOException e)
+	{
+	    Log.error(LOG_COMPONENT, "unable to read the cached phrase " + file.getAbsolutePath() + ": " + e.getClass().getName() + ": " + e.getMessage());
+	    remove(name);
+	    return;
+	}
+	try {
+	    final SourceDataLine l = openLine();
+	    l.start();
+	    final int frameSize = format.getFrameSize();
+	    final int len = frameSize > 0?data.length - data.length % frameSize:data.length;
+	    final int blockSize = frameSize > 0?WRITE_BLOCK_SIZE - WRITE_BLOCK_SIZE % frameSize:WRITE_BLOCK_SIZE;
+	    int pos = 0;
+	    while(pos < len && generation == playGeneration.get())
+	    {
+		final int written = l.write(data, pos, Math.min(blockSize, len - pos));
+		if (written <= 0)
+		    break;
+		pos += written;
+	    }
+	    if (generation != playGeneration.get())
+		return;
+	    l.drain();
+	    if (generation == playGeneration.get() && listener != null)
+		listener.onFinished(0);
+	}
+	catch(LineUnavailableException | RuntimeException e)
+	{
+	    Log.error(LOG_COMPONENT, "unable to play the cached phrase: " + e.getClass().getName() + ": " + e.getMessage());
+	    return;
+	}
+	//Keeping the order of playing between the launches
+	file.setLastModified(System.currentTimeMillis());
+    }
+
+    private void render(String name, String text, String voice, int pitch, int rate)
+    {
+	final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+	try {
+	    if (!voice.isEmpty() && !voice.equals(renderChannel.getVoiceName()))
+		renderChannel.setVoice(voice);
+	    final Channel.SyncParams params = new Channel.SyncParams();
+	    params.setPitch(pitch);
+	    params.setRate(rate);
+	    final Channel.Result res = renderChannel.synth(text, stream, format, params, EnumSet.noneOf(Channel.Flags.class));
+	    if (res == null || res.getType() != Channel.Result.Type.OK)
+		return;
+	}
+	catch(Throwable e)
+	{
+	    Log.error(LOG_COMPONENT, "unable to synthesize the phrase for the cache: " + e.getClass().getName() + ": " + e.getMessage());
+	    return;
+	}
+	final byte[] data = stream.toByteArray();
+	if (data.length == 0 || data.length > maxSize)
+	    return;
+	final File file = new File(dir, name);
+	final File tmpFile = new File(dir, name + ".tmp");
+	try {
+	    Files.createDirectories(dir.toPath());
+	    Files.write(tmpFile.toPath(), data);
+	    Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	catch(IOException e)
+	{
+	    Log.error(LOG_COMPONENT, "unable to save the phrase to the cache: " + e.getClass().getName() + ": " + e.getMessage());
+	    tmpFile.delete();
+	    return;
+	}
+	synchronized(this) {
+	    counts.remove(name);
+	    final Long prevSize = files.put(name, Long.valueOf(data.length));
+	    if (prevSize != null)
+		totalSize -= prevSize.longValue();
+	    totalSize += data.length;
+	}
+	evict();
+    }
+
+    //Removes the least recently played phrases, while the cache is too large
+    private void evict()
+    {
+	final List<String> removed = new ArrayList<>();
+	synchronized(this) {
+	    final Iterator<Map.Entry<String, Long>> it = files.entrySet().iterator();
+	    while(totalSize > maxSize && it.hasNext())
+	    {
+		final Map.Entry<String, Long> e = it.next();
+		totalSize -= e.getValue().longValue();
+		removed.add(e.getKey());
+		it.remove();
+	    }
+	}
+	for(String name: removed)
+	    new File(dir, name).delete();
+    }
+
+    private synchronized void remove(String name)
+    {
+	final Long size = files.remove(name);
+	if (size != null)
+	    totalSize -= size.longValue();
+    }
+
+    private void loadIndex()
+    {
+	final File[] list = dir.listFiles();
+	if (list == null)
+	    return;
+	final List<File> found = new ArrayList<>();
+	for(File f: list)
+	{
+	    if (f.getName().endsWith(SUFFIX + ".tmp"))
+	    {
+		f.delete();
+		continue;
+	    }
+	    if (f.isFile() && f.getName().endsWith(SUFFIX))
+		found.add(f);
+	}
+	final Map<File, Long> modified = new HashMap<>();
+	for(File f: found)
+	    modified.put(f, Long.valueOf(f.lastModified()));
+	Collections.sort(found, (f1, f2)->modified.get(f1).compareTo(modified.get(f2)));
+	synchronized(this) {
+	    for(File f: found)
+		if (!files.containsKey(f.getName()))
+		{
+		    files.put(f.getName(), Long.valueOf(f.length()));
+		    totalSize += f.length();
+		}
+	}
+	evict();
+	Log.debug(LOG_COMPONENT, "the speech cache contains " + found.size() + " phrases");
+    }
+
+    private SourceDataLine openLine() throws LineUnavailableException
+    {
+	synchronized(this) {
+	    if (line != null)
+		return line;
+	}
+	final SourceDataLine l = (SourceDataLine)AudioSystem.getLine(new DataLine.Info(SourceDataLine.class, format));
+	l.open(format);
+	synchronized(this) {
+	    this.line = l;
+	}
+	return l;
+    }
+
+    private void stopLine()
+    {
+	final SourceDataLine l;
+	synchronized(this) {
+	    l = this.line;
+	}
+	if (l == null)
+	    return;
+	l.stop();
+	l.flush();
+    }
+
+    private String getFileName(String text, String voice, int pitch, int rate)
+    {
+	final String key = engineName + "\n" + engineParams + "\n" + voice + "\n" + pitch + "\n" + rate + "\n" + formatStr + "\n" + text;
+	return Sha1.getSha1(key, "UTF-8") + SUFFIX;
+    }
+
+    static private ExecutorService createExecutor(String threadName)
+    {
+	return Executors.newSingleThreadExecutor((r)->{
+		final Thread t = new Thread(r, threadName);
+		t.setDaemon(true);
+		return t;
+	    });
+    }
+}
@@ -0,0 +1,140 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.luwrain.speech.*;
+
+/**
+ * Traces the time from the moment of putting the input event to the
+ * event queue to the first speech caused by it. The main event loop
+ * begins the trace for every input event and marks the stage of its
+ * processing (the handling by the area, the event response or the
+ * announcement), and the speech output reports every speaking. Only the
+ * first speaking of every traced event is measured; it is recorded by
+ * the stage and by the class of the area, which got the event. If the
+ * speech engine notifies about the finishing, the time to the end of
+ * speaking is recorded as well. The tracing is done in the main thread
+ * only, the reading is possible in any thread.
+ */
+final class SpeechLatency
+{
+    static final String PROP_STAT = "luwrain.speech.stat";
+
+    enum Stage {HANDLING, RESPONSE, ANNOUNCEMENT};
+
+    private final Map<Stage, LatencyHistogram> byStage = new ConcurrentHashMap<>();
+    private final Map<Class, LatencyHistogram> byArea = new ConcurrentHashMap<>();
+    private final LatencyHistogram
+	firstSpeech = new LatencyHistogram(),
+	speakingFinished = new LatencyHistogram(),
+	channelCalls = new LatencyHistogram();
+    private final AtomicLong silentEvents = new AtomicLong(0);
+
+    //The queuing time of the traced event, zero if there is no traced event
+    private long traceStart = 0;
+    private Stage stage = Stage.HANDLING;
+    private Class areaClass = null;
+    private boolean spoken = false;
+
+    //Starts the trace of the input event taken from the queue
+    void begin(long queuedTime)
+    {
+	this.traceStart = queuedTime;
+	this.stage = Stage.HANDLING;
+	this.areaClass = null;
+	this.spoken = false;
+    }
+
+    void setStage(Stage stage)
+    {
+	NullCheck.notNull(stage, "stage");
+	this.stage = stage;
+    }
+
+    void setArea(Area area)
+    {
+	NullCheck.notNull(area, "area");
+	this.areaClass = area.getClass();
+    }
+
+    //Finishes the trace; the popups opened while processing the event finish it earlier
+    void end()
+    {
+	if (traceStart != 0 && !spoken)
+	    silentEvents.incrementAndGet();
+	this.traceStart = 0;
+    }
+
+    /**
+     * Records the speaking, if it is the first one of the traced event.
+     *
+     * @return The listener to pass to the channel for catching the end of speaking, or null, if the speaking isn't traced
+     */
+    Channel.Listener onSpeak()
+    {
+	if (traceStart == 0 || spoken)
+	    return null;
+	this.spoken = true;
+	final long start = traceStart;
+	final long latency = System.nanoTime() - start;
+	firstSpeech.record(latency);
+	getHistogram(byStage, stage).record(latency);
+	if (areaClass != null)
+	    getHistogram(byArea, areaClass).record(latency);
+	return (id)->speakingFinished.record(System.nanoTime() - start);
+    }
+
+    //The duration of the call of the speech channel, i.e. how long the engine takes to accept the text
+    void onChannelCall(long nanos)
+    {
+	channelCalls.record(nanos);
+    }
+
+    String[] getLines()
+    {
+	final List<String> res = new ArrayList<>();
+	res.add("first speech: " + firstSpeech.toSummary());
+	for(Stage s: Stage.values())
+	{
+	    final LatencyHistogram h = byStage.get(s);
+	    if (h != null)
+		res.add("first speech on " + s.name().toLowerCase() + ": " + h.toSummary());
+	}
+	final List<Map.Entry<Class, LatencyHistogram>> entries = new ArrayList<>(byArea.entrySet());
+	Collections.sort(entries, (e1, e2)->e1.getKey().getName().compareTo(e2.getKey().getName()));
+	for(Map.Entry<Class, LatencyHistogram> e: entries)
+	    res.add("first speech in " + e.getKey().getName() + ": " + e.getValue().toSummary());
+	res.add("speaking finished: " + speakingFinished.toSummary());
+	res.add("channel calls: " + channelCalls.toSummary());
+	res.add("input events without speech: " + silentEvents.get());
+	return res.toArray(new String[res.size()]);
+    }
+
+    static private <K> LatencyHistogram getHistogram(Map<K, LatencyHistogram> histograms, K key)
+    {
+	final LatencyHistogram res = histograms.get(key);
+	if (res != null)
+	    return res;
+	final LatencyHistogram newHistogram = new LatencyHistogram();
+	histograms.put(key, newHistogram);
+	return newHistogram;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.luwrain.speech.*;
+
+/**
+ * Chooses the order of the speaking through the main channel. The speech
+ * caused by the user, i.e. spoken while processing the input event,
+ * always interrupts the current speaking, as it was before. The speech
+ * from the background interrupts only the speaking of the lower priority;
+ * otherwise it waits in the queue until the current speaking is finished.
+ * The event responses interrupt each other in any case. The queued
+ * messages with the same voice parameters are merged into a single
+ * utterance, and the queued utterances of the rest of the priorities are
+ * replaced by the newer ones of the same priority, since they are
+ * already stale. The queue is advanced on the notifications of the
+ * engine about the finishing of speaking or, if the notification doesn't
+ * come in the time estimated by the length of the text, on the timeout,
+ * passing the next utterance without cancelling the previous one, in
+ * case it is still being spoken. If the engine can't notify at all,
+ * the background speech is passed to the channel without cancelling the
+ * previous text, so the engine queues it itself. Must be used in the main
+ * thread only, the notifications of the engine are passed to the main
+ * thread through the given executor.
+ */
+final class SpeechScheduler
+{
+    static private final String LOG_COMPONENT = Base.LOG_COMPONENT;
+    static final int
+	MAX_MERGED_LEN = 512,
+	MAX_QUEUED = 8;
+    static final long
+	MIN_TIMEOUT = 3000,
+	TIMEOUT_PER_CHAR = 200;
+
+    //In the order of decreasing priority
+    enum Priority {EVENT_RESPONSE, HINT, MESSAGE, NOTIFICATION};
+
+    interface Output
+    {
+	void speak(Utterance utterance, Channel.Listener listener, boolean cancelPrevious);
+    }
+
+    interface Timeouts
+    {
+	//The runnable may be called in any thread
+	void schedule(Runnable runnable, long delayMs);
+    }
+
+    static final class Utterance
+    {
+	final Priority priority;
+	final String text;
+	final char letter;
+	final int pitch;
+	final int rate;
+	//The listener of the latency tracing, may be null
+	final Channel.Listener listener;
+	Utterance(Priority priority, String text, int pitch, int rate, Channel.Listener listener)
+	{
+	    NullCheck.notNull(priority, "priority");
+	    NullCheck.notNull(text, "text");
+	    this.priority = priority;
+	    this.text = text;
+	    this.letter = '\0';
+	    this.pitch = pitch;
+	    this.rate = rate;
+	    this.listener = listener;
+	}
+	Utterance(Priority priority, char letter, int pitch, int rate, Channel.Listener listener)
+	{
+	    NullCheck.notNull(priority, "priority");
+	    this.priority = priority;
+	    this.text = null;
+	    this.letter = letter;
+	    this.pitch = pitch;
+	    this.rate = rate;
+	    this.listener = listener;
+	}
+	boolean isLetter()
+	{
+	    return text == null;
+	}
+    }
+
+    private final Output output;
+    private final Executor mainThread;
+    private final Timeouts timeouts;
+    private boolean notifying = false;
+    //The utterances ordered by the priority, in the order of arriving within the same priority
+    private final LinkedList<Utterance> queue = new LinkedList<>();
+    private Utterance current = null;
+    private long currentStartTime = 0;
+    //The utterance, for which the timeout is already scheduled
+    private Utterance awaited = null;
+
+    SpeechScheduler(Output output, Executor mainThread, Timeouts timeouts)
+    {
+	NullCheck.notNull(output, "output");
+	NullCheck.notNull(mainThread, "mainThread");
+	NullCheck.notNull(timeouts, "timeouts");
+	this.output = output;
+	this.mainThread = mainThread;
+	this.timeouts = timeouts;
+    }
+
+    //Must be set only if the engine reliably notifies about the finishing of speaking
+    void setNotifying(boolean notifying)
+    {
+	this.notifying = notifying;
+	this.current = null;
+	queue.clear();
+    }
+
+    /**
+     * Speaks the utterance now or queues it for later.
+     *
+     * @param utterance The utterance to speak
+     * @param userCaused True if the utterance is spoken while processing the input event
+     */
+    void speak(Utterance utterance, boolean userCaused)
+    {
+	NullCheck.notNull(utterance, "utterance");
+	if (!notifying)
+	{
+	    output.speak(utterance, utterance.listener, userCaused || utterance.priority.ordinal() < Priority.MESSAGE.ordinal());
+	    return;
+	}
+	if (current == null || userCaused ||
+	    utterance.priority.ordinal() < current.priority.ordinal() ||
+	    (utterance.priority == Priority.EVENT_RESPONSE && current.priority == Priority.EVENT_RESPONSE))
+	{
+	    start(utterance, true);
+	    return;
+	}
+	enqueue(utterance);
+	scheduleTimeout();
+    }
+
+    //Drops the current speaking and the queue, the channel must be silenced by the caller
+    void clear()
+    {
+	this.current = null;
+	queue.clear();
+    }
+
+    boolean isSpeaking()
+    {
+	return current != null;
+    }
+
+    int getQueueSize()
+    {
+	return queue.size();
+    }
+
+    private void start(Utterance utterance, boolean cancelPrevious)
+    {
+	this.current = utterance;
+	this.currentStartTime = System.currentTimeMillis();
+	final Channel.Listener listener = utterance.listener;
+	output.speak(utterance, (id)->{
+		if (listener != null)
+		    listener.onFinished(id);
+		mainThread.execute(()->onFinished(utterance));
+	    }, cancelPrevious);
+	if (!queue.isEmpty())
+	    scheduleTimeout();
+    }
+
+    private void onFinished(Utterance utterance)
+    {
+	//The notification of the interrupted utterance
+	if (current != utterance)
+	    return;
+	this.current = null;
+	final Utterance next = queue.pollFirst();
+	if (next != null)
+	    start(next, true);
+    }
+
+    //The timeout is needed only while there are the waiting utterances
+    private void scheduleTimeout()
+    {
+	if (current == null || awaited == current)
+	    return;
+	final Utterance utterance = current;
+	this.awaited = utterance;
+	final long elapsed = System.currentTimeMillis() - currentStartTime;
+	timeouts.schedule(()->mainThread.execute(()->onTimeout(utterance)), Math.max(MIN_TIMEOUT, getDuration(utterance) - elapsed));
+    }
+
+    private void onTimeout(Utterance utterance)
+    {
+	if (current != utterance)
+	    return;
+	Log.warning(LOG_COMPONENT, "no notification about the finishing of speaking in time, going to the next utterance");
+	this.current = null;
+	final Utterance next = queue.pollFirst();
+	if (next != null)
+	    start(next, false);
+    }
+
+    //The upper estimation of the duration of speaking
+    static long getDuration(Utterance utterance)
+    {
+	NullCheck.notNull(utterance, "utterance");
+	return MIN_TIMEOUT + (utterance.isLetter()?0:utterance.text.length() * TIMEOUT_PER_CHAR);
+    }
+
+    private void enqueue(Utterance utterance)
+    {
+	if (utterance.priority == Priority.MESSAGE)
+	{
+	    //Merging only with the last queued message to keep the order
+	    int last = -1;
+	    for(int i = 0;i < queue.size();i++)
+		if (queue.get(i).priority == Priority.MESSAGE)
+		    last = i;
+	    if (last >= 0)
+	    {
+		final Utterance merged = merge(queue.get(last), utterance);
+		if (merged != null)
+		{
+		    queue.set(last, merged);
+		    return;
+		}
+	    }
+	} else
+	    queue.removeIf((u)->u.priority == utterance.priority);
+	int pos = 0;
+	for(Utterance u: queue)
+	{
+	    if (u.priority.ordinal() > utterance.priority.ordinal())
+		break;
+	    pos++;
+	}
+	queue.add(pos, utterance);
+	//Dropping the oldest utterances of the lowest priority
+	while(queue.size() > MAX_QUEUED)
+	{
+	    final Priority lowest = queue.getLast().priority;
+	    final Iterator<Utterance> i = queue.iterator();
+	    while(i.hasNext())
+		if (i.next().priority == lowest)
+		{
+		    i.remove();
+		    break;
+		}
+	}
+    }
+
+    //Returns null, if the utterances can't be merged
+    static Utterance merge(Utterance u1, Utterance u2)
+    {
+	NullCheck.notNull(u1, "u1");
+	NullCheck.notNull(u2, "u2");
+	if (u1.isLetter() || u2.isLetter() || u1.pitch != u2.pitch || u1.rate != u2.rate)
+	    return null;
+	if (u1.text.isEmpty())
+	    return u2;
+	final String sep = ".!?;:,".indexOf(u1.text.charAt(u1.text.length() - 1)) >= 0?" ":". ";
+	if (u1.text.length() + sep.length() + u2.text.length() > MAX_MERGED_LEN)
+	    return null;
+	return new Utterance(u1.priority, u1.text + sep + u2.text, u1.pitch, u1.rate, u1.listener);
+    }
+}
@@ -0,0 +1,248 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.luwrain.core.ExtensionsManager.LoadedExtension;
+
+/**
+ * Watches the event being processed by the main thread. If the
+ * processing takes longer than the threshold, the watchdog captures the
+ * stack of the main thread, plays the busy sound and writes to the log
+ * the event, the active area, the active application and the extension
+ * found on the stack. Every stall is reported only once, and its total
+ * duration is logged as soon as the main thread becomes free again.
+ * <p>
+ * The main thread only writes a few volatile fields per event, all the
+ * checking is done by the separate thread. The processing of the event
+ * which has opened a popup isn't watched after the popup is closed,
+ * since the nested event loop takes over the watching.
+ */
+final class StallWatchdog
+{
+    static private final String LOG_COMPONENT = Base.LOG_COMPONENT;
+    static final String PROP_STAT = "luwrain.watchdog.stat";
+    static final int DEFAULT_THRESHOLD = 2000;
+    static private final int
+	MIN_CHECK_INTERVAL = 50,
+	MAX_STACK_DEPTH = 64;
+
+    private final Base base;
+    private final Thread mainThread;
+    private ScheduledExecutorService executor = null;
+    private volatile long threshold = TimeUnit.MILLISECONDS.toNanos(DEFAULT_THRESHOLD);
+    //False if the sound scheme has no file for the stall sound
+    private volatile boolean busySound = false;
+
+    //Written by the main thread only
+    private volatile Event current = null;
+    private volatile long currentStart = 0;
+    private volatile long currentSeq = 0;
+    private volatile long stalledSeq = -1;
+    //Set by the main thread on dispatching the input events
+    private volatile Class activeAreaClass = null;
+    private volatile Class activeAppClass = null;
+
+    private final AtomicLong stallCount = new AtomicLong(0);
+    private final LatencyHistogram stallDurations = new LatencyHistogram();
+    private final Map<String, AtomicLong> stallsBySource = new ConcurrentHashMap<>();
+
+    StallWatchdog(Base base, Thread mainThread)
+    {
+	NullCheck.notNull(base, "base");
+	NullCheck.notNull(mainThread, "mainThread");
+	this.base = base;
+	this.mainThread = mainThread;
+    }
+
+    //Zero or negative value disables the watchdog
+    synchronized void start(int thresholdMsec)
+    {
+	if (executor != null || thresholdMsec <= 0)
+	    return;
+	this.threshold = TimeUnit.MILLISECONDS.toNanos(thresholdMsec);
+	//The sound is played in the watchdog thread, where the registry may not be read
+	this.busySound = base.sounds.prepare(Sounds.BUSY) != null;
+	final long interval = Math.max(MIN_CHECK_INTERVAL, thresholdMsec / 4);
+	this.executor = Executors.newSingleThreadScheduledExecutor((r)->{
+		final Thread t = new Thread(r, "luwrain-watchdog");
+		t.setDaemon(true);
+		return t;
+	    });
+	executor.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+	Log.debug(LOG_COMPONENT, "the stall watchdog started with the threshold " + thresholdMsec + "ms");
+    }
+
+    synchronized void close()
+    {
+	if (executor == null)
+	    return;
+	executor.shutdownNow();
+	executor = null;
+    }
+
+    //Main thread only, called when the processing of the event begins
+    void begin(Event event)
+    {
+	currentStart = System.nanoTime();
+	currentSeq++;
+	current = event;
+    }
+
+    //Main thread only, called when the input event is dispatched to the area
+    void setActive(Area area, Application app)
+    {
+	this.activeAreaClass = area != null?area.getClass():null;
+	this.activeAppClass = app != null?app.getClass():null;
+    }
+
+    //Main thread only, called when the main thread isn't busy with any event
+    void idle()
+    {
+	if (current == null)
+	    return;
+	current = null;
+	if (stalledSeq == currentSeq)
+	{
+	    final long duration = System.nanoTime() - currentStart;
+	    stallDurations.record(duration);
+	    Log.warning(LOG_COMPONENT, "the main thread is free again after the stall of " + LatencyHistogram.formatMsec(TimeUnit.NANOSECONDS.toMicros(duration)));
+	}
+    }
+
+    long getStallCount()
+    {
+	return stallCount.get();
+    }
+
+    private void check()
+    {
+	try {
+	    final Event event = current;
+	    final long seq = currentSeq;
+	    if (event == null || stalledSeq == seq)
+		return;
+	    final long duration = System.nanoTime() - currentStart;
+	    if (duration < threshold || current != event || currentSeq != seq)
+		return;
+	    stalledSeq = seq;
+	    onStall(event, duration);
+	}
+	catch(Throwable e)
+	{
+	    Log.error(LOG_COMPONENT, "the stall watchdog failure: " + e.getClass().getName() + ": " + e.getMessage());
+	}
+    }
+
+    private void onStall(Event event, long duration)
+    {
+	stallCount.incrementAndGet();
+	final StackTraceElement[] stack = mainThread.getStackTrace();
+	if (busySound)
+	    base.playSoundInAnyThread(Sounds.BUSY);
+	final String area = getActiveAreaName();
+	final String app = getActiveAppName();
+	final String ext = findExtension(stack);
+	getCounter(ext != null?ext:(area != null?area:getEventName(event))).incrementAndGet();
+	Log.warning(LOG_COMPONENT, "the main thread is stalled for " + LatencyHistogram.formatMsec(TimeUnit.NANOSECONDS.toMicros(duration)) +
+		    " while processing " + getEventName(event) +
+		    ", area " + (area != null?area:"none") +
+		    ", app " + (app != null?app:"none") +
+		    ", extension " + (ext != null?ext:"none"));
+	for(int i = 0;i < stack.length && i < MAX_STACK_DEPTH;i++)
+	    Log.warning(LOG_COMPONENT, "    at " + stack[i].toString());
+    }
+
+    //The class of the runnables is more informative than RunnableEvent
+    static private String getEventName(Event event)
+    {
+	if (event instanceof EventDispatching.RunnableEvent)
+	    return "runnable " + ((EventDispatching.RunnableEvent)event).runnable.getClass().getName();
+	if (event instanceof EventDispatching.CallableEvent)
+	    return "callable " + ((EventDispatching.CallableEvent)event).callable.getClass().getName();
+	return event.getClass().getName();
+    }
+
+    private String getActiveAreaName()
+    {
+	final Class cls = activeAreaClass;
+	return cls != null?cls.getName():null;
+    }
+
+    private String getActiveAppName()
+    {
+	final Class cls = activeAppClass;
+	return cls != null?cls.getName():null;
+    }
+
+    //Returns the class name of the extension whose package is the closest to the top of the stack
+    private String findExtension(StackTraceElement[] stack)
+    {
+	final LoadedExtension[] exts;
+	try {
+	    exts = base.extensions.getAllLoadedExtensions();
+	}
+	catch(Throwable e)
+	{
+	    return null;
+	}
+	final Map<String, String> packages = new HashMap<>();
+	for(LoadedExtension e: exts)
+	{
+	    final String className = e.ext.getClass().getName();
+	    final int pos = className.lastIndexOf(".");
+	    if (pos <= 0)
+		continue;
+	    final String packageName = className.substring(0, pos + 1);
+	    //Skipping the extensions living in the core packages, they would match everything
+	    if (packageName.startsWith("org.luwrain.core."))
+		continue;
+	    packages.put(packageName, className);
+	}
+	if (packages.isEmpty())
+	    return null;
+	for(StackTraceElement s: stack)
+	    for(Map.Entry<String, String> e: packages.entrySet())
+		if (s.getClassName().startsWith(e.getKey()))
+		    return e.getValue();
+	return null;
+    }
+
+    private AtomicLong getCounter(String source)
+    {
+	final AtomicLong res = stallsBySource.get(source);
+	if (res != null)
+	    return res;
+	stallsBySource.putIfAbsent(source, new AtomicLong(0));
+	return stallsBySource.get(source);
+    }
+
+    String[] getLines()
+    {
+	final List<String> res = new ArrayList<>();
+	res.add("stalls: " + stallCount.get() + ", threshold " + TimeUnit.NANOSECONDS.toMillis(threshold) + "ms");
+	res.add("durations: " + stallDurations.toSummary());
+	final List<String> sources = new ArrayList<>(stallsBySource.keySet());
+	Collections.sort(sources);
+	for(String s: sources)
+	    res.add(s + ": " + stallsBySource.get(s).get());
+	return res.toArray(new String[res.size()]);
+    }
+}
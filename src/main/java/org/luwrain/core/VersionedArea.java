@@ -0,0 +1,117 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+//LWR_API 1.0
+
+package org.luwrain.core;
+
+/**
+ * An optional interface for areas able to tell whether their content has
+ * changed. The area increases its content version on every change of the
+ * lines returned by {@code getLine()} and {@code getLineCount()}, before
+ * notifying the core with {@code onAreaNewContent()}. The consumers of the
+ * content, e.g. the screen output or the search indexes, remember the
+ * version they have read and re-read only the changed lines.
+ * <p>
+ * The changes of the name and of the hot point don't change the content
+ * version.
+ */
+public interface VersionedArea extends Area
+{
+    /** The bound of the range meaning that the lines up to the end of the area may have changed or shifted */
+    static public final int END = Integer.MAX_VALUE;
+
+    /**
+     * Returns the current version of the content. The version only
+     * increases, the same version always means the same content.
+     *
+     * @return The current version of the content
+     */
+    long getContentVersion();
+
+    /**
+     * Returns the lines changed since the given version. The area keeps
+     * only a limited history of changes, so the consumer must be ready to
+     * re-read the entire content.
+     *
+     * @param sinceVersion The version the consumer has read previously
+     * @return The range of the changed lines or null, if the changes are unknown and the entire content must be re-read
+     */
+    ChangedLines getChangedLines(long sinceVersion);
+
+    static public final class ChangedLines
+    {
+	static public final ChangedLines NONE = new ChangedLines(0, 0);
+	static public final ChangedLines ALL = new ChangedLines(0, END);
+
+	private final int fromLine;
+	private final int toLine;
+
+	/**
+	 * @param fromLine The index of the first changed line
+	 * @param toLine The index of the line after the last changed one, or {@code END}
+	 */
+	public ChangedLines(int fromLine, int toLine)
+	{
+	    if (fromLine < 0)
+		throw new IllegalArgumentException("fromLine (" + fromLine + ") may not be negative");
+	    if (toLine < fromLine)
+		throw new IllegalArgumentException("toLine (" + toLine + ") may not be less than fromLine (" + fromLine + ")");
+	    this.fromLine = fromLine;
+	    this.toLine = toLine;
+	}
+
+	public int getFromLine()
+	{
+	    return fromLine;
+	}
+
+	public int getToLine()
+	{
+	    return toLine;
+	}
+
+	public boolean isEmpty()
+	{
+	    return fromLine == toLine;
+	}
+
+	public boolean isToEnd()
+	{
+	    return toLine == END;
+	}
+
+	public boolean contains(int index)
+	{
+	    return index >= fromLine && index < toLine;
+	}
+
+	public ChangedLines union(ChangedLines other)
+	{
+	    NullCheck.notNull(other, "other");
+	    if (isEmpty())
+		return other;
+	    if (other.isEmpty())
+		return this;
+	    return new ChangedLines(Math.min(fromLine, other.fromLine), Math.max(toLine, other.toLine));
+	}
+
+	@Override public String toString()
+	{
+	    return "[" + fromLine + ", " + (toLine == END?"end":String.valueOf(toLine)) + ")";
+	}
+    }
+}
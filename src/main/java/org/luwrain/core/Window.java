@@ -28,6 +28,8 @@ Popup.Position popupPos;
     int height = 0;//With title bar;
     int scrolledVert = 0;
     int scrolledHoriz = 0;
+    //The content version of the area at the last drawing, -1 if the area isn't versioned or isn't drawn
+    long contentVersion = -1;
 
     Window(Application app, Area area)
     {
@@ -16,6 +16,8 @@
 
 package org.luwrain.core;
 
+import java.util.*;
+
 class WindowManager 
 {
     private static final int MIN_RANGE_HORIZONTAL = 5;
@@ -24,7 +26,25 @@ class WindowManager
 
     private Interaction interaction;
     private ScreenContentManager screenContentManager;
+    private final ScreenBuffer buffer = new ScreenBuffer();
+    private RenderThread renderThread = null;
+
+    //The geometry of the windows, recalculated only if the tiles or the size of the screen have changed
+    private TileManager geomWindows = null;
+    private int geomWidth = -1, geomHeight = -1;
     private Object[] visibleObjs = null;
+    private final Map<Area, Window> windowsByArea = new IdentityHashMap<>();
+    private final List<Splitter> splitters = new ArrayList<>();
+
+    //The repaintings requested during the processing of the current event, performed by flushRequests()
+    private boolean redrawRequested = false;
+    private final Set<Area> areasToRedraw = Collections.newSetFromMap(new IdentityHashMap<Area, Boolean>());
+    private final Set<Area> hotPointsToUpdate = Collections.newSetFromMap(new IdentityHashMap<Area, Boolean>());
+    private String message = null;
+    //The content versions of the areas at their last notifications about the new content
+    private final Map<Area, Long> notifiedVersions = new IdentityHashMap<>();
+    //The areas which have notified about the new content without registering the change
+    private final Set<Area> areasToRedrawEntirely = Collections.newSetFromMap(new IdentityHashMap<Area, Boolean>());
 
     WindowManager(Interaction interaction, ScreenContentManager screenContentManager)
     {
@@ -37,79 +57,287 @@ class WindowManager
     }
 
     void redraw()
+    {
+	buffer.begin(interaction.getWidthInCharacters(), interaction.getHeightInCharacters());
+	composeAll();
+	paint();
+    }
+
+    //After this call the frames are drawn in a separate thread
+    void startRenderThread()
+    {
+	if (renderThread != null)
+	    return;
+	renderThread = new RenderThread(interaction);
+    }
+
+    //Every call of the interaction except drawing must go through this method to not overlap with the render thread
+    void invokeInteraction(Runnable action)
+    {
+	NullCheck.notNull(action, "action");
+	if (renderThread == null)
+	    action.run(); else
+	    renderThread.invoke(action);
+    }
+
+    void closeRenderThread()
+    {
+	if (renderThread == null)
+	    return;
+	renderThread.close();
+	renderThread = null;
+    }
+
+    void requestRedraw()
+    {
+	redrawRequested = true;
+    }
+
+    void requestAreaRedraw(Area area)
+    {
+	NullCheck.notNull(area, "area");
+	areasToRedraw.add(area);
+    }
+
+    /**
+     * Requests the redrawing of the area after the change of its content.
+     * The versioned areas get only the changed lines redrawn, but if the
+     * area notifies without increasing the version since the previous
+     * notification or the drawing, the change isn't registered and the
+     * entire window is redrawn.
+     */
+    void requestAreaNewContent(Area area)
+    {
+	NullCheck.notNull(area, "area");
+	areasToRedraw.add(area);
+	if (!(area instanceof VersionedArea))
+	    return;
+	final long version = ((VersionedArea)area).getContentVersion();
+	Long prevVersion = notifiedVersions.put(area, Long.valueOf(version));
+	if (prevVersion == null)
+	{
+	    final Window win = findWindow(area);
+	    prevVersion = Long.valueOf(win != null?win.contentVersion:-1);
+	}
+	if (prevVersion.longValue() >= version)
+	    areasToRedrawEntirely.add(area);
+    }
+
+    //Only the caret is moved, unless the window must be scrolled to show the new hot point
+    void requestHotPointUpdate(Area area)
+    {
+	NullCheck.notNull(area, "area");
+	hotPointsToUpdate.add(area);
+    }
+
+    //The message line at the bottom of the screen, drawn on the next flushRequests()
+    void requestMessage(String text)
+    {
+	NullCheck.notNull(text, "text");
+	this.message = text;
+    }
+
+    /**
+     * Performs all the requested repaintings in a single draw session. The
+     * requests are accumulated while the event is being processed, so the
+     * area notifying the core several times costs only one repainting. If
+     * the render thread is started, the composed frame is only submitted to
+     * it.
+     *
+     * @return True if anything has been drawn or submitted, false otherwise
+     */
+    boolean flushRequests()
+    {
+	if (!redrawRequested && areasToRedraw.isEmpty() && hotPointsToUpdate.isEmpty() && message == null)
+	    return false;
+	buffer.begin(interaction.getWidthInCharacters(), interaction.getHeightInCharacters());
+	if (redrawRequested ||
+	    ((!areasToRedraw.isEmpty() || !hotPointsToUpdate.isEmpty()) && (visibleObjs == null || visibleObjs.length == 0)))
+	    composeAll(); else
+	{
+	    for(Area a: areasToRedraw)
+	    {
+		final Window win = findWindow(a);
+		if (win != null)
+		    composeWindow(win);
+	    }
+	    for(Area a: hotPointsToUpdate)
+		if (!areasToRedraw.contains(a))
+		    composeHotPoint(a);
+	}
+	//The message goes after the windows, the full repainting clears the message line
+	if (message != null)
+	    composeMessage(message);
+	redrawRequested = false;
+	areasToRedraw.clear();
+	hotPointsToUpdate.clear();
+	notifiedVersions.clear();
+	areasToRedrawEntirely.clear();
+	message = null;
+	return paint();
+    }
+
+    //The next redraw repaints the entire screen, e.g. if the interaction has lost its content
+    void invalidate()
+    {
+	buffer.invalidate();
+    }
+
+    int getAreaVisibleHeight(Area area)
+    {
+	//The layout may have been changed during the processing of the current event
+	updateGeom();
+	final Window win = windowsByArea.get(area);
+	if (win == null)
+	    return -1;
+	if (win.height <= 1)
+	    return 0;
+	return win.height - 1;
+    }
+
+    int getAreaVisibleWidth(Area area)
+    {
+	updateGeom();
+	final Window win = windowsByArea.get(area);
+	if (win == null)
+	    return -1;
+	if (win.height <= 1)
+	    return 0;
+	return win.width;
+    }
+
+    //Returns false if there are no windows at all
+    private boolean updateGeom()
     {
 	final TileManager windows = screenContentManager.getWindows();
 	if (windows == null)
-	    return;
-	interaction.startDrawSession();
-	interaction.clearRect(0, 1, interaction.getWidthInCharacters() - 1, interaction.getHeightInCharacters() - 1);//FIXME:interaction.getHeightInCharacters() - 2;
-	interaction.setHotPoint(-1, -1);
-	calculateGeom(interaction.getWidthInCharacters(), interaction.getHeightInCharacters(), windows);
+	{
+	    geomWindows = null;
+	    visibleObjs = null;
+	    windowsByArea.clear();
+	    splitters.clear();
+	    return false;
+	}
+	final int width = interaction.getWidthInCharacters(), height = interaction.getHeightInCharacters();
+	if (windows == geomWindows && width == geomWidth && height == geomHeight)
+	    return true;
+	splitters.clear();
+	calculateGeom(width, height, windows);
 	visibleObjs = windows.getObjects();
+	windowsByArea.clear();
 	for(int i = 0;i < visibleObjs.length;i++)
 	{
 	    final Window win = (Window)visibleObjs[i];
-	    if (win != null && win.area != null)
-		drawWindow(win);
+	    if (win != null && win.area != null && !windowsByArea.containsKey(win.area))
+		windowsByArea.put(win.area, win);
 	}
-	interaction.endDrawSession();
+	geomWindows = windows;
+	geomWidth = width;
+	geomHeight = height;
+	return true;
     }
 
-    void redrawArea(Area area)
+    //Returns true if the frame has been drawn or submitted to the render thread
+    private boolean paint()
     {
-	if (visibleObjs == null || visibleObjs.length == 0)
-	{
-	    redraw();
+	if (renderThread == null)
+	    return buffer.flush(interaction);
+	if (!buffer.isModified())
+	    return false;
+	renderThread.submit(buffer.snapshot());
+	return true;
+    }
+
+    private void composeAll()
+    {
+	if (!updateGeom())
 	    return;
-	}
+	buffer.clearRect(0, 1, interaction.getWidthInCharacters() - 1, interaction.getHeightInCharacters() - 1);//FIXME:interaction.getHeightInCharacters() - 2;
+	buffer.setHotPoint(-1, -1);
+	for(Splitter s: splitters)
+	    if (s.vertical)
+		buffer.drawVerticalLine(s.from, s.to, s.pos); else
+		buffer.drawHorizontalLine(s.from, s.to, s.pos);
 	for(int i = 0;i < visibleObjs.length;i++)
 	{
-	    Window win = (Window)visibleObjs[i];
-	    if (win != null &&
-		win.area != null &&
-		win.area == area)
-	    {
-		interaction.startDrawSession();
-		interaction.clearRect(win.x, win.y, win.x + win.width - 1, win.y + win.height - 1);
+	    final Window win = (Window)visibleObjs[i];
+	    if (win != null && win.area != null)
 		drawWindow(win);
-		interaction.endDrawSession();
-		return;
-	    }
 	}
     }
 
-    int getAreaVisibleHeight(Area area)
+    private void composeWindow(Window win)
     {
-	if (visibleObjs == null || visibleObjs.length == 0)
-	    return -1;
-	for(int i = 0;i < visibleObjs.length;i++)
+	if (!areasToRedrawEntirely.contains(win.area) && composeChangedLines(win))
+	    return;
+	composeWholeWindow(win);
+    }
+
+    private void composeWholeWindow(Window win)
+    {
+	buffer.clearRect(win.x, win.y, win.x + win.width - 1, win.y + win.height - 1);
+	drawWindow(win);
+    }
+
+    //Redraws only the lines changed since the last drawing, returns false if the entire window must be redrawn
+    private boolean composeChangedLines(Window win)
+    {
+	if (win.contentVersion < 0 || !(win.area instanceof VersionedArea))
+	    return false;
+	if (win.width < MIN_RANGE_HORIZONTAL || win.height < MIN_RANGE_VERTICAL)
+	    return false;
+	final VersionedArea area = (VersionedArea)win.area;
+	final int scrolledVert = win.scrolledVert, scrolledHoriz = win.scrolledHoriz;
+	calculateScrolling(win);
+	if (win.scrolledVert != scrolledVert || win.scrolledHoriz != scrolledHoriz)
+	    return false;
+	final long version = area.getContentVersion();
+	final VersionedArea.ChangedLines changed = area.getChangedLines(win.contentVersion);
+	final int lineCount = area.getLineCount();
+	//The unchanged version may mean the area has changed its content without registering it
+	if (changed == null || changed.isEmpty() || win.scrolledVert >= lineCount)
+	    return false;
+	buffer.clearRect(win.x, win.y, win.x + win.width - 1, win.y);
+	drawName(win);
+	final int fromLine = Math.max(changed.getFromLine(), win.scrolledVert);
+	final int toLine = Math.min(changed.getToLine(), win.scrolledVert + win.height - 1);
+	for(int i = fromLine;i < toLine;i++)
 	{
-	    Window win = (Window)visibleObjs[i];
-	    if (win == null || win.area == null || win.area != area)
-		continue;
-	    if (win.height <= 1)
-		return 0;
-	    return win.height - 1;
+	    final int y = win.y + i - win.scrolledVert + 1;
+	    buffer.clearRect(win.x, y, win.x + win.width - 1, y);
+	    if (i < lineCount)
+		buffer.drawText(win.x, y, getProperLinePart(win, area.getLine(i)), false);
 	}
-	return -1;
+	win.contentVersion = version;
+	if (area == screenContentManager.getActiveArea())
+	    setHotPoint(win);
+	return true;
     }
 
-    int getAreaVisibleWidth(Area area)
+    private void composeHotPoint(Area area)
     {
-	if (visibleObjs == null || visibleObjs.length == 0)
-	    return -1;
-	for(int i = 0;i < visibleObjs.length;i++)
+	final Window win = findWindow(area);
+	if (win == null)
+	    return;
+	if (win.width < MIN_RANGE_HORIZONTAL || win.height < MIN_RANGE_VERTICAL)
+	    return;
+	final int scrolledVert = win.scrolledVert, scrolledHoriz = win.scrolledHoriz;
+	calculateScrolling(win);
+	if (win.scrolledVert != scrolledVert || win.scrolledHoriz != scrolledHoriz)
 	{
-	    Window win = (Window)visibleObjs[i];
-	    if (win == null || win.area == null || win.area != area)
-		continue;
-	    if (win.height <= 1)
-		return 0;
-	    return win.width;
+	    composeWholeWindow(win);
+	    return;
 	}
-	return -1;
+	if (area == screenContentManager.getActiveArea())
+	    setHotPoint(win);
     }
 
+    private void composeMessage(String text)
+    {
+	final int width = interaction.getWidthInCharacters(), height = interaction.getHeightInCharacters();
+	buffer.clearRect(0, height - 1, width - 1, height - 1);
+	buffer.drawText(0, height - 1, text, true);
+    }
 
     private void calculateGeom(int screenWidth,
 			       int screenHeight,
@@ -195,7 +423,7 @@ class WindowManager
 	    //No need to fix range2 value, it is never used below;
 	    calculateGeomImpl(windows, obj1, left, top, right, top + range1 - 1);
 	    calculateGeomImpl(windows, obj2, left, top + range1 + 1, right, bottom);
-	    interaction.drawHorizontalLine(left, right, top + range1);
+	    splitters.add(new Splitter(false, left, right, top + range1));
 	    return;
 	}
 	if (windows.getDirection(obj) == TileManager.HORIZONTAL)
@@ -213,7 +441,7 @@ class WindowManager
 	    //No need to fix range2 value, it is never used below;
 	    calculateGeomImpl(windows, obj1, left, top, left + range1 - 1, bottom);
 	    calculateGeomImpl(windows, obj2, left + range1 + 1, top, right, bottom);
-	    interaction.drawVerticalLine(top, bottom, left + range1);
+	    splitters.add(new Splitter(true, top, bottom, left + range1));
 	    return;
 	}
     }
@@ -272,7 +500,7 @@ win.area == null)
 	    anotherTop = top;
 	    anotherRight = right;
 	    anotherBottom = bottom;
-	    interaction.drawVerticalLine(top, bottom, left + popupWidth);
+	    splitters.add(new Splitter(true, top, bottom, left + popupWidth));
 	    break;
 	case TOP:
 	    win.x = left;
@@ -283,7 +511,7 @@ win.area == null)
 	    anotherTop = top + popupHeight + 1;
 	    anotherRight = right;
 	    anotherBottom = bottom;
-	    interaction.drawHorizontalLine(left, right, top + popupHeight);
+	    splitters.add(new Splitter(false, left, right, top + popupHeight));
 	    break;
 	case RIGHT:
 	    win.x = right - popupWidth + 1;
@@ -294,7 +522,7 @@ win.area == null)
 	    anotherTop = top;
 	    anotherRight = right - popupWidth - 1;
 	    anotherBottom = bottom;
-	    interaction.drawVerticalLine(top, bottom, right - popupWidth);
+	    splitters.add(new Splitter(true, top, bottom, right - popupWidth));
 	    break;
 	case BOTTOM:
 	    win.x = left;
@@ -305,7 +533,7 @@ win.area == null)
 	    anotherTop = top;
 	    anotherRight = right;
 	    anotherBottom = bottom - popupHeight - 1;
-	    interaction.drawHorizontalLine(left, right, bottom - popupHeight);
+	    splitters.add(new Splitter(false, left, right, bottom - popupHeight));
 	    break;
 	default:
 	    win.markInvisible();
@@ -345,29 +573,45 @@ win.area == null)
     {
 	if (win == null || win.area == null)
 	    return;
+	win.contentVersion = -1;
 	if (win.width < MIN_RANGE_HORIZONTAL || win.height < MIN_RANGE_VERTICAL)
 	    return;
 	//	Log.debug("screen", "window (" + win.x + "," + win.y + ")-(" + (win.x + win.width - 1) + "," + (win.y + win.height - 1) + ")");
 	calculateScrolling(win);
 	Area area = win.area;
+	final long version = (area instanceof VersionedArea)?((VersionedArea)area).getContentVersion():-1;
 	if (win.scrolledVert < 0 || win.scrolledVert >= area.getLineCount())
 	    return;
-	final String name = area.getAreaName();
-	if (name != null && !name.isEmpty())
-	    interaction.drawText(win.x, win.y, name.length() <= win.width?name:name.substring(0, win.width), true);
+	drawName(win);
 	int count = area.getLineCount() - win.scrolledVert;
 	if (count > win.height - 1)
 	    count = win.height - 1;
 	for(int k = 0;k < count;k++)
-	    interaction.drawText(win.x, win.y + k + 1, getProperLinePart(win, area.getLine(k + win.scrolledVert)));
+	    buffer.drawText(win.x, win.y + k + 1, getProperLinePart(win, area.getLine(k + win.scrolledVert)), false);
+	win.contentVersion = version;
 	if (area == screenContentManager.getActiveArea())
-	{
-	    final int hotPointX = area.getHotPointX() - win.scrolledHoriz;
-	    final int hotPointY = area.getHotPointY() - win.scrolledVert;
-	    if (hotPointX >= 0 && hotPointX <win.width &&
-		hotPointY >= 0 && hotPointY < (win.height - 1))
-		interaction.setHotPoint(hotPointX + win.x, hotPointY + win.y + 1);
-	}
+	    setHotPoint(win);
+    }
+
+    private void drawName(Window win)
+    {
+	final String name = win.area.getAreaName();
+	if (name != null && !name.isEmpty())
+	    buffer.drawText(win.x, win.y, name.length() <= win.width?name:name.substring(0, win.width), true);
+    }
+
+    private void setHotPoint(Window win)
+    {
+	final int hotPointX = win.area.getHotPointX() - win.scrolledHoriz;
+	final int hotPointY = win.area.getHotPointY() - win.scrolledVert;
+	if (hotPointX >= 0 && hotPointX <win.width &&
+	    hotPointY >= 0 && hotPointY < (win.height - 1))
+	    buffer.setHotPoint(hotPointX + win.x, hotPointY + win.y + 1);
+    }
+
+    private Window findWindow(Area area)
+    {
+	return windowsByArea.get(area);
     }
 
     private String getProperLinePart(Window win, String line)
@@ -379,4 +623,18 @@ win.area == null)
 	String l = win.scrolledHoriz == 0?line:line.substring(win.scrolledHoriz);
 	return l.length() <= win.width?l:l.substring(0, win.width );
     }
+
+    //The line between two windows
+    static private final class Splitter
+    {
+	final boolean vertical;
+	final int from, to, pos;
+	Splitter(boolean vertical, int from, int to, int pos)
+	{
+	    this.vertical = vertical;
+	    this.from = from;
+	    this.to = to;
+	    this.pos = pos;
+	}
+    }
 }
@@ -19,6 +19,7 @@
 package org.luwrain.core.events;
 
 import java.util.*;
+import java.util.concurrent.atomic.*;
 
 import org.luwrain.core.*;
 import org.luwrain.interaction.*;
@@ -40,6 +41,11 @@ public final class InputEvent extends Event
 
     static private KeyboardLayout keyboardLayout = new org.luwrain.interaction.layouts.RuDefault();
 
+    //The shared instances returned by of(), with the modifiers in the lower three bits of the index
+    static private final int SHARED_CHARS = 128;
+    static private final AtomicReferenceArray<InputEvent> sharedSpecials = new AtomicReferenceArray<>(Special.values().length << 3);
+    static private final AtomicReferenceArray<InputEvent> sharedChars = new AtomicReferenceArray<>(SHARED_CHARS << 3);
+
     protected boolean isSpecial = false;
     protected Special special = null;
     protected char nonSpecialChar = 0;
@@ -143,6 +149,8 @@ public final class InputEvent extends Event
     /*FIXME:It is better to rename it to equalKeysOnKeyboard()*/
     public boolean equals(InputEvent event)
     {
+	if (event == null)
+	    return false;
 	return (isSpecial == event.isSpecial &&
 		(!isSpecial || special == event.special) &&
 		(isSpecial || keyboardLayout.onSameButton(nonSpecialChar, event.nonSpecialChar)) &&
@@ -151,6 +159,29 @@ public final class InputEvent extends Event
 		altPressed == event.altPressed);
     }
 
+    /**
+     * Checks whether the object is the input event of the same key on the
+     * keyboard. The characters on the same button of the current keyboard
+     * layout are considered equal, so the input events may be used as the
+     * keys of the hashed maps only while the keyboard layout is unchanged.
+     */
+    @Override public boolean equals(Object o)
+    {
+	if (this == o)
+	    return true;
+	if (!(o instanceof InputEvent))
+	    return false;
+	return equals((InputEvent)o);
+    }
+
+    //Consistent with equals(), takes the characters on the same button as the same key
+    @Override public int hashCode()
+    {
+	int res = isSpecial?(1 << 16) | (special != null?special.ordinal():0xffff):getButton(nonSpecialChar);
+	res <<= 3;
+	return res | getModifiersBits(shiftPressed, controlPressed, altPressed);
+    }
+
     public boolean isSpecial()
     {
 	return isSpecial;
@@ -216,6 +247,73 @@ public final class InputEvent extends Event
 	return new String(b);
     }
 
+    /**
+     * Returns the shared instance of the input event of the special key.
+     * The shared instances are intended for comparing and translating the
+     * keystrokes without allocations. They must never be put into the event
+     * queue, since the processing state of the event may not be shared.
+     *
+     * @param special The special key
+     * @param shiftPressed Whether the Shift key is pressed
+     * @param controlPressed Whether the Control key is pressed
+     * @param altPressed Whether the Alt key is pressed
+     * @return The shared instance of the input event
+     */
+    static public InputEvent of(Special special, boolean shiftPressed, boolean controlPressed, boolean altPressed)
+    {
+	NullCheck.notNull(special, "special");
+	final int index = (special.ordinal() << 3) | getModifiersBits(shiftPressed, controlPressed, altPressed);
+	final InputEvent res = sharedSpecials.get(index);
+	if (res != null)
+	    return res;
+	sharedSpecials.compareAndSet(index, null, new InputEvent(special, shiftPressed, controlPressed, altPressed));
+	return sharedSpecials.get(index);
+    }
+
+    static public InputEvent of(Special special)
+    {
+	return of(special, false, false, false);
+    }
+
+    /**
+     * Returns the shared instance of the input event of the character. Only
+     * the ASCII characters are shared, for the rest ones a new instance is
+     * created. The shared instances must never be put into the event queue.
+     *
+     * @param nonSpecialChar The typed character
+     * @param shiftPressed Whether the Shift key is pressed
+     * @param controlPressed Whether the Control key is pressed
+     * @param altPressed Whether the Alt key is pressed
+     * @return The input event of the character, shared if the character is ASCII
+     */
+    static public InputEvent of(char nonSpecialChar, boolean shiftPressed, boolean controlPressed, boolean altPressed)
+    {
+	if (nonSpecialChar >= SHARED_CHARS)
+	    return new InputEvent(nonSpecialChar, shiftPressed, controlPressed, altPressed);
+	final int index = (nonSpecialChar << 3) | getModifiersBits(shiftPressed, controlPressed, altPressed);
+	final InputEvent res = sharedChars.get(index);
+	if (res != null)
+	    return res;
+	sharedChars.compareAndSet(index, null, new InputEvent(nonSpecialChar, shiftPressed, controlPressed, altPressed));
+	return sharedChars.get(index);
+    }
+
+    static private int getModifiersBits(boolean shiftPressed, boolean controlPressed, boolean altPressed)
+    {
+	return (shiftPressed?1:0) | (controlPressed?2:0) | (altPressed?4:0);
+    }
+
+    //The first character of the button in the current keyboard layout
+    static private char getButton(char c)
+    {
+	final char lc = Character.toLowerCase(c);
+	final KeyboardLayout layout = keyboardLayout;
+	if (layout == null)
+	    return lc;
+	final char ascii = layout.getAsciiOfButton(lc);
+	return ascii != '\0'?ascii:lc;
+    }
+
     static public Special translateSpecial(String value)
     {
 	NullCheck.notNull(value, "value");
@@ -77,6 +77,7 @@ public class SystemEvent extends Event
 	INTRODUCE,
 	IDLE,
 	LISTENING_FINISHED,
+	LONG_IDLE,
 	MOVE_HOT_POINT,
 	OK,
 	PROPERTIES,
@@ -16,6 +16,8 @@
 
 package org.luwrain.core.listening;
 
+import javax.sound.sampled.AudioFormat;
+
 import org.luwrain .core.*;
 import org.luwrain.core.events.*;
 import org.luwrain.core.queries.*;
@@ -25,6 +27,8 @@ import org.luwrain.core.ListenableArea.ListeningInfo;
 
 public final class Listening
 {
+    static private final int MAX_LOOK_AHEAD = 2;
+
     private final Luwrain luwrain;
     private final Speech speech;
     private final Runnable completion;
@@ -33,6 +37,16 @@ public final class Listening
         private final Area area;
     private ListenableArea listenableArea = null;
 
+    //The look-ahead synthesizing, used if the engine is able to synthesize to a stream
+    private SynthPipeline pipeline = null;
+    private ListeningInfo lastQueued = null;
+    private ListeningInfo lastPlayed = null;
+    //The hot point before the listening, restored on cancelling before the end of the first chunk
+    private int startX = 0;
+    private int startY = 0;
+    private int queuedCount = 0;
+    private boolean noMore = false;
+
     public Listening(Luwrain luwrain, Speech speech, Area area, Runnable completion)
     {
 	NullCheck.notNull(luwrain, "luwrain");
@@ -68,21 +82,21 @@ public final class Listening
 		this.channel.close();
 		return false;
 	    }
-	speak(info);
+	begin(info);
 	return true;
 	}
 	this.listenableArea = new CompatArea(area);
 	ListeningInfo info = listenableArea.onListeningStart();
 	if (info != null && !info.noMore())
 	{
-		speak(info);
+		begin(info);
 		return true;
 	}
 	this.listenableArea = new PlainArea(area);
 	info = listenableArea.onListeningStart();
 	if (info != null && !info.noMore())
 	{
-		speak(info);
+		begin(info);
 		return true;
 	}
 	this.listenableArea = null;
@@ -94,12 +108,114 @@ public final class Listening
     {
 	if (channel == null || listenableArea == null)
 	    return;
+	if (pipeline != null)
+	{
+	    pipeline.close();
+	    pipeline = null;
+	    //The area is moved ahead of the playing, returning to the start of the playing chunk
+	    if (lastPlayed != null)
+		listenableArea.onListeningFinish(lastPlayed); else
+		area.onSystemEvent(new MoveHotPointEvent(startX, startY, false));
+	    this.listenableArea = null;
+	    this.completion.run();
+	    return;
+	}
 	this.channel.silence();
 	this.channel.close();
 	this.listenableArea = null;
 	this.completion.run();
     }
 
+    private void begin(ListeningInfo info)
+    {
+	NullCheck.notNull(info, "info");
+	final int lookAhead = Math.min(sett.getListeningLookAhead(1), MAX_LOOK_AHEAD);
+	final AudioFormat format = lookAhead > 0?getSynthFormat():null;
+	if (format == null)
+	{
+	    speak(info);
+	    return;
+	}
+	final Channel.SyncParams params = new Channel.SyncParams();
+	params.setPitch(sett.getListeningPitch(50) - 50);
+	params.setRate(50 - sett.getListeningRate(50));
+	final SynthPipeline p = new SynthPipeline(channel, format, params, new SynthPipeline.Listener(){
+		@Override public void onChunkPlayed(ListeningInfo chunkInfo)
+		{
+		    luwrain.runUiSafely(()->onChunkPlayed(chunkInfo));
+		}
+		@Override public void onPlayingFinished(boolean success)
+		{
+		    luwrain.runUiSafely(()->onPlayingFinished());
+		}
+	    });
+	this.pipeline = p;
+	this.lastQueued = null;
+	this.lastPlayed = null;
+	this.queuedCount = 0;
+	this.noMore = false;
+	this.startX = area.getHotPointX();
+	this.startY = area.getHotPointY();
+	p.start();
+	queue(info);
+	fill(lookAhead);
+    }
+
+    //Queues the chunks until there are the playing one and the given number of the following ones
+    private void fill(int lookAhead)
+    {
+	while(!noMore && queuedCount <= lookAhead)
+	{
+	    listenableArea.onListeningFinish(lastQueued);
+	    final ListeningInfo nextInfo = listenableArea.onListeningStart();
+	    if (nextInfo == null || nextInfo.noMore())
+	    {
+		noMore = true;
+		pipeline.addEnd();
+		return;
+	    }
+	    queue(nextInfo);
+	}
+    }
+
+    private void queue(ListeningInfo info)
+    {
+	pipeline.add(info, luwrain.getSpeakableText(info.getText(), Luwrain.SpeakableTextType.NATURAL));
+	lastQueued = info;
+	queuedCount++;
+    }
+
+    private void onChunkPlayed(ListeningInfo info)
+    {
+	if (pipeline == null || listenableArea == null)
+	    return;
+	lastPlayed = info;
+	queuedCount--;
+	fill(Math.min(sett.getListeningLookAhead(1), MAX_LOOK_AHEAD));
+    }
+
+    private void onPlayingFinished()
+    {
+	if (pipeline == null || listenableArea == null)
+	    return;
+	pipeline.close();
+	pipeline = null;
+	listenableArea = null;
+	this.completion.run();
+    }
+
+    //Returns null if the engine can't synthesize to a stream
+    private AudioFormat getSynthFormat()
+    {
+	final String engineName = sett.getListeningEngineName("");
+	if (!speech.getEngineFeatures(engineName).contains(Engine.Features.CAN_SYNTH_TO_STREAM))
+	    return null;
+	final AudioFormat[] formats = channel.getSynthSupportedFormats();
+	if (formats == null || formats.length == 0 || formats[0] == null)
+	    return null;
+	return formats[0];
+    }
+
     private void onFinish(ListeningInfo listeningInfo)
     {
 	NullCheck.notNull(listeningInfo, "listeningInfo");
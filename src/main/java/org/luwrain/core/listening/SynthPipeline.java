@@ -0,0 +1,237 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core.listening;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+import javax.sound.sampled.*;
+
+import org.luwrain.core.*;
+import org.luwrain.speech.*;
+import org.luwrain.core.ListenableArea.ListeningInfo;
+
+/**
+ * Synthesizes the chunks of the listening ahead of their playing. The
+ * chunks are synthesized one by one in a separate thread to PCM data and
+ * played in one more thread through a single audio line, which stays open
+ * between the chunks, so there is no gap between them as long as the next
+ * chunk is synthesized before the previous one is played. The pipeline
+ * owns the channel and closes it in the synthesizing thread, after the
+ * synthesizing of the current chunk is finished.
+ */
+final class SynthPipeline
+{
+    static private final String LOG_COMPONENT = "core";
+    static private final int WRITE_BLOCK_SIZE = 4096;
+
+    interface Listener
+    {
+	//Called in the playing thread, once the chunk is entirely passed to the audio line
+	void onChunkPlayed(ListeningInfo info);
+	//Called in the playing thread, once all chunks are played or the playing has failed
+	void onPlayingFinished(boolean success);
+    }
+
+    static private final class Chunk
+    {
+	final ListeningInfo info;
+	final byte[] data;
+	Chunk(ListeningInfo info, byte[] data)
+	{
+	    this.info = info;
+	    this.data = data;
+	}
+    }
+    static private final Chunk END = new Chunk(null, null);
+
+    private final Channel channel;
+    private final AudioFormat format;
+    private final Channel.SyncParams params;
+    private final Listener listener;
+    private final ExecutorService synthExecutor;
+    private final BlockingQueue<Chunk> chunks = new LinkedBlockingQueue<>();
+    private final Thread playingThread;
+    private volatile boolean closed = false;
+    private SourceDataLine line = null;
+
+    SynthPipeline(Channel channel, AudioFormat format, Channel.SyncParams params, Listener listener)
+    {
+	NullCheck.notNull(channel, "channel");
+	NullCheck.notNull(format, "format");
+	NullCheck.notNull(params, "params");
+	NullCheck.notNull(listener, "listener");
+	this.channel = channel;
+	this.format = format;
+	this.params = params;
+	this.listener = listener;
+	this.synthExecutor = Executors.newSingleThreadExecutor((r)->{
+		final Thread t = new Thread(r, "luwrain-listening-synth");
+		t.setDaemon(true);
+		return t;
+	    });
+	this.playingThread = new Thread(this::play, "luwrain-listening-play");
+	this.playingThread.setDaemon(true);
+    }
+
+    void start()
+    {
+	playingThread.start();
+    }
+
+    //Queues the chunk for synthesizing; the chunks are played in the order of queuing
+    void add(ListeningInfo info, String text)
+    {
+	NullCheck.notNull(info, "info");
+	NullCheck.notNull(text, "text");
+	try {
+	    synthExecutor.execute(()->synth(info, text));
+	}
+	catch(RejectedExecutionException e)
+	{
+	    //The pipeline is closed
+	}
+    }
+
+    //Marks that there are no more chunks, the playing finishes after the queued ones
+    void addEnd()
+    {
+	try {
+	    synthExecutor.execute(()->chunks.add(END));
+	}
+	catch(RejectedExecutionException e)
+	{
+	    //The pipeline is closed
+	}
+    }
+
+    //Stops the playing immediately and closes the channel, may be called several times
+    void close()
+    {
+	if (closed)
+	    return;
+	closed = true;
+	//Runs after the chunk being synthesized, the rest ones are skipped
+	synthExecutor.execute(channel::close);
+	synthExecutor.shutdown();
+	chunks.clear();
+	playingThread.interrupt();
+	synchronized(this) {
+	    if (line != null)
+	    {
+		line.stop();
+		line.flush();
+	    }
+	}
+    }
+
+    private void synth(ListeningInfo info, String text)
+    {
+	if (closed)
+	    return;
+	final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+	try {
+	    final Channel.Result res = channel.synth(text, stream, format, params, EnumSet.noneOf(Channel.Flags.class));
+	    if (res == null || res.getType() != Channel.Result.Type.OK)
+	    {
+		Log.error(LOG_COMPONENT, "unable to synthesize the listening chunk: " + (res != null?res.getType().toString():"no result"));
+		chunks.add(new Chunk(info, null));
+		return;
+	    }
+	}
+	catch(Throwable e)
+	{
+	    Log.error(LOG_COMPONENT, "unable to synthesize the listening chunk: " + e.getClass().getName() + ": " + e.getMessage());
+	    chunks.add(new Chunk(info, null));
+	    return;
+	}
+	if (!closed)
+	    chunks.add(new Chunk(info, stream.toByteArray()));
+    }
+
+    private void play()
+    {
+	try {
+	    final SourceDataLine l = (SourceDataLine)AudioSystem.getLine(new DataLine.Info(SourceDataLine.class, format));
+	    l.open(format);
+	    l.start();
+	    synchronized(this) {
+		if (closed)
+		{
+		    l.close();
+		    return;
+		}
+		this.line = l;
+	    }
+	    while(!closed)
+	    {
+		final Chunk chunk = chunks.take();
+		if (chunk == END)
+		{
+		    l.drain();
+		    if (!closed)
+			listener.onPlayingFinished(true);
+		    return;
+		}
+		if (chunk.data == null)
+		{
+		    if (!closed)
+			listener.onPlayingFinished(false);
+		    return;
+		}
+		write(l, chunk.data);
+		if (!closed)
+		    listener.onChunkPlayed(chunk.info);
+	    }
+	}
+	catch(InterruptedException e)
+	{
+	    //Closing of the pipeline
+	}
+	catch(LineUnavailableException | RuntimeException e)
+	{
+	    Log.error(LOG_COMPONENT, "unable to play the listening chunk: " + e.getClass().getName() + ": " + e.getMessage());
+	    if (!closed)
+		listener.onPlayingFinished(false);
+	}
+	finally {
+	    synchronized(this) {
+		if (line != null)
+		{
+		    line.close();
+		    line = null;
+		}
+	    }
+	}
+    }
+
+    private void write(SourceDataLine l, byte[] data)
+    {
+	//The audio line accepts only the whole frames
+	final int frameSize = format.getFrameSize();
+	final int len = frameSize > 0?data.length - data.length % frameSize:data.length;
+	final int blockSize = frameSize > 0?WRITE_BLOCK_SIZE - WRITE_BLOCK_SIZE % frameSize:WRITE_BLOCK_SIZE;
+	int pos = 0;
+	while(pos < len && !closed)
+	{
+	    final int written = l.write(data, pos, Math.min(blockSize, len - pos));
+	    if (written <= 0)
+		break;
+	    pos += written;
+	}
+    }
+}
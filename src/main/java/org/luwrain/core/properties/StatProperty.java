@@ -0,0 +1,78 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core.properties;
+
+import java.util.*;
+import java.util.function.*;
+
+import org.luwrain.core.*;
+
+/**
+ * The read-only public property with the statistics of some part of the
+ * core. The value is taken from the given supplier on every reading, so
+ * the supplier may be called in any thread.
+ */
+public final class StatProperty implements PropertiesProvider
+{
+    private final String name;
+    private final Supplier<String> value;
+
+    public StatProperty(String name, Supplier<String> value)
+    {
+	NullCheck.notEmpty(name, "name");
+	NullCheck.notNull(value, "value");
+	this.name = name;
+	this.value = value;
+    }
+
+    @Override public String getExtObjName()
+    {
+	return this.getClass().getName() + ":" + name;
+    }
+
+    @Override public String[] getPropertiesRegex()
+    {
+	return new String[0];
+    }
+
+    @Override public Set<PropertiesProvider.Flags> getPropertyFlags(String propName)
+    {
+	NullCheck.notEmpty(propName, "propName");
+	if (propName.equals(name))
+	    return EnumSet.of(PropertiesProvider.Flags.PUBLIC, PropertiesProvider.Flags.READ_ONLY);
+	return null;
+    }
+
+    @Override public String getProperty(String propName)
+    {
+	NullCheck.notEmpty(propName, "propName");
+	if (propName.equals(name))
+	    return value.get();
+	return null;
+    }
+
+    @Override public boolean setProperty(String propName, String value)
+    {
+	NullCheck.notEmpty(propName, "propName");
+	NullCheck.notNull(value, "value");
+	return false;
+    }
+
+    @Override public void setListener(PropertiesProvider.Listener listener)
+    {
+    }
+}
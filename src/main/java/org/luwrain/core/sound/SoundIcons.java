@@ -21,6 +21,12 @@ import java.io.*;
 
 import org.luwrain.core.*;
 
+/**
+ * Plays the sound icons. The methods are synchronized, so the sounds may
+ * be played from any thread, but the file of the sound is looked up in
+ * the registry on its first playing, so the sounds played outside of the
+ * main thread must be prepared with {@code prepare()} beforehand.
+ */
 public final class SoundIcons
 {
     private final Registry registry;
@@ -36,28 +42,36 @@ public final class SoundIcons
 	this.soundsDir = soundsDir;
     }
 
-    public void play(Sounds sound, int volumePercent)
+    public synchronized void play(Sounds sound, int volumePercent)
     {
 	NullCheck.notNull(sound, "sound");
-	final File soundFile;
-	if (!soundFiles.containsKey(sound))
-	{
-	    soundFile = getSoundFile(sound);
-	    if (soundFile == null)
-	    {
-		Log.error("core", "no sound file specified for Sounds." + sound.toString());
-		return;
-	    }
-	    soundFiles.put(sound, soundFile);
-	} else
-	    soundFile = soundFiles.get(sound);
+	final File soundFile = prepare(sound);
+	if (soundFile == null)
+	    return;
 	if (previous != null)
 	    previous.stopPlaying();
 	previous = new WavePlayers.Simple(soundFile.getAbsolutePath(), volumePercent);
 	new Thread(previous).start();
     }
 
-        public void play(File file, int volumePercent)
+    //Looks up the file of the sound, returns null if there is no such file
+    public synchronized File prepare(Sounds sound)
+    {
+	NullCheck.notNull(sound, "sound");
+	final File cached = soundFiles.get(sound);
+	if (cached != null)
+	    return cached;
+	final File soundFile = getSoundFile(sound);
+	if (soundFile == null)
+	{
+	    Log.error("core", "no sound file specified for Sounds." + sound.toString());
+	    return null;
+	}
+	soundFiles.put(sound, soundFile);
+	return soundFile;
+    }
+
+    public synchronized void play(File file, int volumePercent)
     {
 	NullCheck.notNull(file, "file");
 	if (previous != null)
@@ -66,7 +80,7 @@ public final class SoundIcons
 	new Thread(previous).start();
     }
 
-    public void stop()
+    public synchronized void stop()
     {
 	if (previous != null)
 	    previous.stopPlaying();
@@ -16,11 +16,32 @@
 
 package org.luwrain.core.speech;
 
+import java.util.*;
+
 import org.luwrain.core.*;
 
+/**
+ * Prepares the texts for speaking with the hooks of the extensions. The
+ * same texts (the names of the areas, the static strings, the list items)
+ * are spoken over and over, so the results are kept in a bounded LRU
+ * cache. The cache is cleared on every change of the set of the hooks,
+ * e.g. when a script is loaded or adds a new hook.
+ */
 public class SpeakingText
 {
+    static private final String HOOK_REGULAR = "luwrain.speech.text.regular";
+    static private final int
+	CACHE_SIZE = 512,
+	MAX_CACHED_LEN = 256;
+
     private ExtensionsManager  extensions;
+    private final Map<String, String> cache = new LinkedHashMap<String, String>(CACHE_SIZE, 0.75f, true){
+	    @Override protected boolean removeEldestEntry(Map.Entry<String, String> eldest)
+	    {
+		return size() > CACHE_SIZE;
+	    }
+	};
+    private long cacheGeneration = -1;
 
     public SpeakingText(ExtensionsManager extensions)
     {
@@ -31,9 +52,26 @@ public class SpeakingText
         public String  processRegular(String text)
     {
 	NullCheck.notNull(text, "text");
-	final SpeakingHook hook = new SpeakingHook(text);
-	extensions.runHooks("luwrain.speech.text.regular", hook);
-	return hook.getText().replaceAll("\\h", " ");
+	if (text.length() > MAX_CACHED_LEN)
+	    return runHooks(text);
+	final long generation = extensions.getHooksGeneration();
+	synchronized(cache) {
+	    if (generation != cacheGeneration)
+	    {
+		cache.clear();
+		cacheGeneration = generation;
+	    }
+	    final String res = cache.get(text);
+	    if (res != null)
+		return res;
+	}
+	final String res = runHooks(text);
+	synchronized(cache) {
+	    //The hooks could change while running
+	    if (generation == cacheGeneration)
+		cache.put(text, res);
+	}
+	return res;
     }
 
         public String  processEventResponse(String text)
@@ -41,4 +79,46 @@ public class SpeakingText
 	NullCheck.notNull(text, "text");
 	return processRegular(text);
     }
+
+    private String runHooks(String text)
+    {
+	final SpeakingHook hook = new SpeakingHook(text);
+	extensions.runHooks(HOOK_REGULAR, hook);
+	return replaceHorizontalSpaces(hook.getText());
+    }
+
+    //Does the same as replaceAll("\\h", " "), but without the regular expression and without copying the text without such spaces
+    static String replaceHorizontalSpaces(String text)
+    {
+	char[] res = null;
+	for(int i = 0;i < text.length();i++)
+	{
+	    final char c = text.charAt(i);
+	    if (c == ' ' || !isHorizontalSpace(c))
+		continue;
+	    if (res == null)
+		res = text.toCharArray();
+	    res[i] = ' ';
+	}
+	return res != null?new String(res):text;
+    }
+
+    //The characters matched by \h in java.util.regex
+    static private boolean isHorizontalSpace(char c)
+    {
+	switch(c)
+	{
+	case ' ':
+	case '\t':
+	case '\u00a0':
+	case '\u1680':
+	case '\u180e':
+	case '\u202f':
+	case '\u205f':
+	case '\u3000':
+	    return true;
+	default:
+	    return c >= '\u2000' && c <= '\u200a';
+	}
+    }
 }
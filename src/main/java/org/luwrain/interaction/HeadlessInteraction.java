@@ -0,0 +1,228 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.interaction;
+
+import java.util.*;
+
+import org.luwrain.core.*;
+
+/**
+ * The interaction without any display, rendering into a character grid
+ * in memory. It is intended for running the environment on the machines
+ * without a screen, e.g. for automated performance and regression
+ * scenarios. The input events may be fed with {@link InputReplay} through
+ * the event consumer provided by the core. The size of the grid can be
+ * given with the {@code luwrain.headless.width} and
+ * {@code luwrain.headless.height} system properties, if the interaction
+ * is created by its class name.
+ */
+public final class HeadlessInteraction implements Interaction
+{
+    static private final String LOG_COMPONENT = "headless";
+    static public final int
+	DEFAULT_WIDTH = 80,
+	DEFAULT_HEIGHT = 25;
+
+    private final int width;
+    private final int height;
+    private final char[][] grid;
+    private int hotPointX = -1, hotPointY = -1;
+    private long drawSessionCount = 0;
+    private int fontSize = 14;
+    private EventConsumer eventConsumer = null;
+
+    public HeadlessInteraction()
+    {
+	this(Integer.getInteger("luwrain.headless.width", DEFAULT_WIDTH).intValue(),
+	     Integer.getInteger("luwrain.headless.height", DEFAULT_HEIGHT).intValue());
+    }
+
+    public HeadlessInteraction(int width, int height)
+    {
+	if (width <= 0)
+	    throw new IllegalArgumentException("width (" + width + ") must be greater than zero");
+	if (height <= 0)
+	    throw new IllegalArgumentException("height (" + height + ") must be greater than zero");
+	this.width = width;
+	this.height = height;
+	this.grid = new char[height][width];
+	for(char[] line: grid)
+	    Arrays.fill(line, ' ');
+    }
+
+    @Override public boolean init(InteractionParams params, OperatingSystem os)
+    {
+	NullCheck.notNull(params, "params");
+	if (params.initialFontSize > 0)
+	    this.fontSize = params.initialFontSize;
+	Log.debug(LOG_COMPONENT, "headless interaction initialized with the grid " + width + "x" + height);
+	return true;
+    }
+
+    @Override public void close()
+    {
+    }
+
+    @Override public synchronized void startInputEventsAccepting(EventConsumer eventConsumer)
+    {
+	NullCheck.notNull(eventConsumer, "eventConsumer");
+	this.eventConsumer = eventConsumer;
+	notifyAll();
+    }
+
+    @Override public synchronized void stopInputEventsAccepting()
+    {
+	this.eventConsumer = null;
+    }
+
+    /**
+     * Waits until the core starts accepting the input events.
+     *
+     * @param timeout The maximum time of waiting in milliseconds
+     * @return The event consumer of the core or null, if the timeout has expired
+     */
+    public synchronized EventConsumer waitForEventConsumer(long timeout) throws InterruptedException
+    {
+	final long deadline = System.currentTimeMillis() + timeout;
+	while(eventConsumer == null)
+	{
+	    final long rest = deadline - System.currentTimeMillis();
+	    if (rest <= 0)
+		return null;
+	    wait(rest);
+	}
+	return eventConsumer;
+    }
+
+    @Override public synchronized boolean setDesirableFontSize(int size)
+    {
+	if (size <= 0)
+	    return false;
+	this.fontSize = size;
+	return true;
+    }
+
+    @Override public synchronized int getFontSize()
+    {
+	return fontSize;
+    }
+
+    @Override public int getWidthInCharacters()
+    {
+	return width;
+    }
+
+    @Override public int getHeightInCharacters()
+    {
+	return height;
+    }
+
+    @Override public void startDrawSession()
+    {
+    }
+
+    @Override public synchronized void clearRect(int left, int top, int right, int bottom)
+    {
+	for(int y = Math.max(top, 0);y <= bottom && y < height;y++)
+	    for(int x = Math.max(left, 0);x <= right && x < width;x++)
+		grid[y][x] = ' ';
+    }
+
+    @Override public void drawText(int x, int y, String text)
+    {
+	drawText(x, y, text, false);
+    }
+
+    @Override public synchronized void drawText(int x, int y, String text, boolean font2)
+    {
+	NullCheck.notNull(text, "text");
+	if (y < 0 || y >= height)
+	    return;
+	for(int i = 0;i < text.length();i++)
+	{
+	    final int pos = x + i;
+	    if (pos < 0)
+		continue;
+	    if (pos >= width)
+		break;
+	    grid[y][pos] = text.charAt(i);
+	}
+    }
+
+    @Override public synchronized void endDrawSession()
+    {
+	drawSessionCount++;
+	notifyAll();
+    }
+
+    @Override public synchronized void setHotPoint(int x, int y)
+    {
+	this.hotPointX = x;
+	this.hotPointY = y;
+    }
+
+    @Override public synchronized void drawVerticalLine(int top, int bottom, int x)
+    {
+	if (x < 0 || x >= width)
+	    return;
+	for(int y = Math.max(top, 0);y <= bottom && y < height;y++)
+	    grid[y][x] = '|';
+    }
+
+    @Override public synchronized void drawHorizontalLine(int left, int right, int y)
+    {
+	if (y < 0 || y >= height)
+	    return;
+	for(int x = Math.max(left, 0);x <= right && x < width;x++)
+	    grid[y][x] = '-';
+    }
+
+    @Override public void showGraphical(GraphicalMode graphicalMode)
+    {
+	Log.warning(LOG_COMPONENT, "the graphical mode isn't supported by the headless interaction");
+    }
+
+    public synchronized String getLine(int y)
+    {
+	if (y < 0 || y >= height)
+	    throw new IllegalArgumentException("y (" + y + ") must be between 0 and " + (height - 1));
+	return new String(grid[y]);
+    }
+
+    public synchronized String[] getLines()
+    {
+	final String[] res = new String[height];
+	for(int i = 0;i < height;i++)
+	    res[i] = new String(grid[i]);
+	return res;
+    }
+
+    public synchronized int getHotPointX()
+    {
+	return hotPointX;
+    }
+
+    public synchronized int getHotPointY()
+    {
+	return hotPointY;
+    }
+
+    public synchronized long getDrawSessionCount()
+    {
+	return drawSessionCount;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.interaction;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+import java.nio.file.*;
+
+import org.luwrain.core.*;
+import org.luwrain.core.events.*;
+
+/**
+ * Feeds the recorded streams of the input events to the core. Every line
+ * of a record consists of the time offset in milliseconds from the
+ * beginning of the record and the event in the form produced by
+ * {@code InputEvent.toString()}, separated by the tab character, for
+ * example, "1250\tCtrl+ARROW_DOWN". The empty lines and the lines
+ * starting with '#' are ignored. The events may be played with the
+ * original timing, with the timing compressed by the given factor or
+ * without any delays at all.
+ */
+public final class InputReplay
+{
+    static public final class Entry
+    {
+	public final long time;
+	public final InputEvent event;
+	public Entry(long time, InputEvent event)
+	{
+	    NullCheck.notNull(event, "event");
+	    if (time < 0)
+		throw new IllegalArgumentException("time (" + time + ") may not be negative");
+	    this.time = time;
+	    this.event = event;
+	}
+	@Override public String toString()
+	{
+	    return String.valueOf(time) + "\t" + event.toString();
+	}
+    }
+
+    private final EventConsumer consumer;
+
+    public InputReplay(EventConsumer consumer)
+    {
+	NullCheck.notNull(consumer, "consumer");
+	this.consumer = consumer;
+    }
+
+    /**
+     * Plays the events. With the zero speed the events are issued without
+     * any delays. If the waiting for the processing is requested, every
+     * next event is issued only after the core has completely processed
+     * the previous one, and the delays of the processing are returned.
+     *
+     * @param entries The events to play
+     * @param speed The factor of the time compression, 1 means the original timing, 0 means no delays
+     * @param waitProcessed Wait for the processing of every event
+     * @return The processing delays in nanoseconds, if the waiting is requested, or an empty array otherwise
+     */
+    public long[] play(List<Entry> entries, double speed, boolean waitProcessed) throws InterruptedException
+    {
+	NullCheck.notNull(entries, "entries");
+	if (speed < 0)
+	    throw new IllegalArgumentException("speed (" + speed + ") may not be negative");
+	final long[] res = new long[waitProcessed?entries.size():0];
+	final long startTime = System.nanoTime();
+	for(int i = 0;i < entries.size();i++)
+	{
+	    final Entry e = entries.get(i);
+	    if (speed > 0)
+	    {
+		final long delay = (long)(TimeUnit.MILLISECONDS.toNanos(e.time) / speed) - (System.nanoTime() - startTime);
+		if (delay > 0)
+		    TimeUnit.NANOSECONDS.sleep(delay);
+	    }
+	    //Every event object may be processed only once
+	    final InputEvent event = copy(e.event);
+	    final long enqueueTime = System.nanoTime();
+	    consumer.enqueueEvent(event);
+	    if (waitProcessed)
+	    {
+		event.waitForBeProcessed();
+		res[i] = System.nanoTime() - enqueueTime;
+	    }
+	}
+	return res;
+    }
+
+    static public List<Entry> load(Path path) throws IOException
+    {
+	NullCheck.notNull(path, "path");
+	return parse(Files.readAllLines(path, java.nio.charset.StandardCharsets.UTF_8));
+    }
+
+    static public void save(Path path, List<Entry> entries) throws IOException
+    {
+	NullCheck.notNull(path, "path");
+	NullCheck.notNull(entries, "entries");
+	final List<String> lines = new ArrayList<>();
+	for(Entry e: entries)
+	    lines.add(e.toString());
+	Files.write(path, lines, java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    static public List<Entry> parse(List<String> lines)
+    {
+	NullCheck.notNull(lines, "lines");
+	final List<Entry> res = new ArrayList<>();
+	for(int i = 0;i < lines.size();i++)
+	{
+	    final String line = lines.get(i);
+	    if (line.trim().isEmpty() || line.trim().startsWith("#"))
+		continue;
+	    final int pos = line.indexOf("\t");
+	    if (pos <= 0 || pos + 1 >= line.length())
+		throw new IllegalArgumentException("line " + (i + 1) + ": no tab-separated time and event");
+	    final long time;
+	    try {
+		time = Long.parseLong(line.substring(0, pos).trim());
+	    }
+	    catch(NumberFormatException e)
+	    {
+		throw new IllegalArgumentException("line " + (i + 1) + ": illegal time: " + line.substring(0, pos));
+	    }
+	    final InputEvent event = parseEvent(line.substring(pos + 1));
+	    if (event == null)
+		throw new IllegalArgumentException("line " + (i + 1) + ": illegal event: " + line.substring(pos + 1));
+	    res.add(new Entry(time, event));
+	}
+	return res;
+    }
+
+    //The reverse of InputEvent.toString(), returns null if the value can't be parsed
+    static public InputEvent parseEvent(String value)
+    {
+	NullCheck.notNull(value, "value");
+	String rest = value;
+	final EnumSet<InputEvent.Modifiers> modifiers = EnumSet.noneOf(InputEvent.Modifiers.class);
+	while(rest.length() > 1)
+	{
+	    if (rest.startsWith("Ctrl+"))
+	    {
+		modifiers.add(InputEvent.Modifiers.CONTROL);
+		rest = rest.substring(5);
+		continue;
+	    }
+	    if (rest.startsWith("Alt+"))
+	    {
+		modifiers.add(InputEvent.Modifiers.ALT);
+		rest = rest.substring(4);
+		continue;
+	    }
+	    if (rest.startsWith("Shift+"))
+	    {
+		modifiers.add(InputEvent.Modifiers.SHIFT);
+		rest = rest.substring(6);
+		continue;
+	    }
+	    break;
+	}
+	if (rest.isEmpty())
+	    return null;
+	if (rest.length() == 1)
+	    return new InputEvent(rest.charAt(0), modifiers);
+	try {
+	    return new InputEvent(InputEvent.Special.valueOf(rest), modifiers);
+	}
+	catch(IllegalArgumentException e)
+	{
+	    return null;
+	}
+    }
+
+    static private InputEvent copy(InputEvent event)
+    {
+	if (event.isSpecial())
+	    return new InputEvent(event.getSpecial(), event.withShift(), event.withControl(), event.withAlt());
+	return new InputEvent(event.getChar(), event.withShift(), event.withControl(), event.withAlt());
+    }
+}
@@ -39,6 +39,8 @@ public final class LuwrainObj
     final Luwrain luwrain;
     final Object syncObj = new Object();
     final Map<String, List<Value> > hooks = new HashMap<>();
+    //Notified on every added hook, so the core may update its index of the hooks
+    volatile Runnable hooksListener = null;
     final List<ExtensionObject> extObjs = new ArrayList<>();
     final I18nObj i18nObj;
     final List<Command> commands = new ArrayList<>();
@@ -110,6 +112,9 @@ public final class LuwrainObj
 	    this.hooks.put(name, h);
 	}
 	h.add(args[1]);
+	final Runnable listener = this.hooksListener;
+	if (listener != null)
+	    listener.run();
 	return true;
     }
 
@@ -167,7 +172,13 @@ public final class LuwrainObj
 		}
 		return null;
 	    });
-	luwrain.executeBkg(task);
+	try {
+	    luwrain.executeBkg(task);
+	}
+	catch(RejectedExecutionException e)
+	{
+	    return false;
+	}
 	return true;
     }
 
@@ -32,6 +32,7 @@ public final class ScriptCore implements HookContainer, AutoCloseable
     private final Bindings bindings;
     private final Luwrain luwrain;
     private final List<Module> modules = new ArrayList<>();
+    private volatile Runnable hooksListener = null;
 
     public ScriptCore(Luwrain luwrain, Bindings bindings)
     {
@@ -64,16 +65,20 @@ public final class ScriptCore implements HookContainer, AutoCloseable
 	    line = r.readLine();
 	}
 	final Module m = new Module(luwrain, bindings);
+	m.luwrainObj.hooksListener = hooksListener;
 	m.run(new String(b));
 	modules.add(m);
+	onHooksChanged();
     }
 
     public void load (File file) throws IOException
     {
 	NullCheck.notNull(file, "file");
 	final Module m = new Module(luwrain, bindings);
+	m.luwrainObj.hooksListener = hooksListener;
 	m.run(FileUtils.readTextFileSingleString(file, "UTF-8"));
 	modules.add(m);
+	onHooksChanged();
     }
 
     public void load (ScriptFile scriptFile) throws IOException
@@ -110,6 +115,54 @@ public final class ScriptCore implements HookContainer, AutoCloseable
 	return true;
     }
 
+    /**
+     * Returns the hooks of all loaded modules by their names. The hooks of
+     * every name are in the order they are run by {@link #runHooks}. The
+     * returned hooks may be run without this object, but the lock of the
+     * module must be held while running the hook and processing its
+     * result, as it is done by {@link #runHooks}.
+     *
+     * @return The map of the hooks by their names
+     */
+    public Map<String, List<ModuleHook>> getHooks()
+    {
+	final Map<String, List<ModuleHook>> res = new HashMap<>();
+	for(Module m: modules)
+	{
+	    final Object syncObj = m.luwrainObj.syncObj;
+	    synchronized(syncObj) {
+		for(Map.Entry<String, List<Value>> e: m.luwrainObj.hooks.entrySet())
+		{
+		    List<ModuleHook> hooks = res.get(e.getKey());
+		    if (hooks == null)
+		    {
+			hooks = new ArrayList<>();
+			res.put(e.getKey(), hooks);
+		    }
+		    for(Value v: e.getValue())
+			hooks.add(new ModuleHook(syncObj, (args)->v.execute(args)));
+		}
+	    }
+	}
+	return res;
+    }
+
+    //The listener is notified on every new hook and module
+    public void setHooksListener(Runnable listener)
+    {
+	NullCheck.notNull(listener, "listener");
+	this.hooksListener = listener;
+	for(Module m: modules)
+	    m.luwrainObj.hooksListener = listener;
+    }
+
+    private void onHooksChanged()
+    {
+	final Runnable listener = this.hooksListener;
+	if (listener != null)
+	    listener.run();
+    }
+
     public ExtensionObject[] getExtObjects()
     {
 	final List<ExtensionObject> res = new ArrayList<>();
@@ -125,4 +178,18 @@ public final class ScriptCore implements HookContainer, AutoCloseable
 	    res.addAll(m.luwrainObj.commands);
 	return res.toArray(new Command[res.size()]);
     }
+
+    //The hook of the module with the lock, which must be held while running the hook and processing its result
+    static public final class ModuleHook
+    {
+	public final Object syncObj;
+	public final Luwrain.Hook hook;
+	ModuleHook(Object syncObj, Luwrain.Hook hook)
+	{
+	    NullCheck.notNull(syncObj, "syncObj");
+	    NullCheck.notNull(hook, "hook");
+	    this.syncObj = syncObj;
+	    this.hook = hook;
+	}
+    }
 }
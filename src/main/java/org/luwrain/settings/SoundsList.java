@@ -33,6 +33,7 @@ final class SoundsList extends ListArea<SoundsList.Item> implements SectionArea,
 	Sounds.ANNOUNCEMENT,
 	Sounds.ATTENTION,
 	Sounds.BLOCKED,
+	Sounds.BUSY,
 	Sounds.CANCEL,
 	Sounds.CHAT_MESSAGE,
 	Sounds.CLICK,
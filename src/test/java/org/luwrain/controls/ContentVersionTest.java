@@ -0,0 +1,56 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.controls;
+
+import org.junit.*;
+
+import org.luwrain.core.*;
+import org.luwrain.core.VersionedArea.ChangedLines;
+
+public class ContentVersionTest extends Assert
+{
+    @Test public void ranges()
+    {
+	final ContentVersion v = new ContentVersion();
+	assertEquals(0, v.get());
+	assertTrue(v.getChangedSince(0).isEmpty());
+	v.changed(3, 4);
+	v.changed(7, 8);
+	assertEquals(2, v.get());
+	final ChangedLines c = v.getChangedSince(0);
+	assertEquals(3, c.getFromLine());
+	assertEquals(8, c.getToLine());
+	assertEquals(7, v.getChangedSince(1).getFromLine());
+	assertTrue(v.getChangedSince(2).isEmpty());
+	v.changed(5, VersionedArea.END);
+	assertTrue(v.getChangedSince(2).isToEnd());
+	assertNull(v.getChangedSince(4));
+    }
+
+    @Test public void history()
+    {
+	final ContentVersion v = new ContentVersion();
+	for(int i = 0;i < 100;i++)
+	    v.changed(i, i + 1);
+	assertNull(v.getChangedSince(0));
+	final ChangedLines c = v.getChangedSince(90);
+	assertEquals(90, c.getFromLine());
+	assertEquals(100, c.getToLine());
+	v.changed();
+	assertTrue(v.getChangedSince(100) == ChangedLines.ALL);
+    }
+}
@@ -130,4 +130,33 @@ public class TestingControlContext implements ControlContext
     @Override public void sayStaticStr(LangStatic str) {}
     @Override public void message(String text, Luwrain.MessageType messageType) {}
     @Override public void runUiSafely(Runnable runnable) {}
+
+    @Override public <T> java.util.concurrent.CompletableFuture<T> callUiAsync(java.util.concurrent.Callable<T> callable)
+    {
+	final java.util.concurrent.CompletableFuture<T> res = new java.util.concurrent.CompletableFuture<>();
+	try {
+	    res.complete(callable.call());
+	}
+	catch(Exception e)
+	{
+	    res.completeExceptionally(e);
+	}
+	return res;
+    }
+
+    @Override public java.util.concurrent.CompletableFuture<Object[]> callUiAsync(java.util.concurrent.Callable[] callables)
+    {
+	final Object[] values = new Object[callables.length];
+	try {
+	    for(int i = 0;i < callables.length;i++)
+		values[i] = callables[i].call();
+	}
+	catch(Exception e)
+	{
+	    final java.util.concurrent.CompletableFuture<Object[]> res = new java.util.concurrent.CompletableFuture<>();
+	    res.completeExceptionally(e);
+	    return res;
+	}
+	return java.util.concurrent.CompletableFuture.completedFuture(values);
+    }
     }
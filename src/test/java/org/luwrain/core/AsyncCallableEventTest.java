@@ -0,0 +1,79 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import org.luwrain.core.EventDispatching.AsyncCallableEvent;
+
+public class AsyncCallableEventTest extends Assert
+{
+    @Test public void success() throws Exception
+    {
+	final List<Event> queue = new ArrayList<>();
+	final CompletableFuture<String> res = AsyncCallableEvent.call(()->"result", false, queue::add);
+	assertFalse(res.isDone());
+	assertEquals(1, queue.size());
+	((AsyncCallableEvent)queue.get(0)).call();
+	assertTrue(res.isDone());
+	assertEquals("result", res.get());
+    }
+
+    @Test public void exception() throws Exception
+    {
+	final List<Event> queue = new ArrayList<>();
+	final CompletableFuture<String> res = AsyncCallableEvent.call(()->{ throw new IllegalStateException("failure"); }, false, queue::add);
+	((AsyncCallableEvent)queue.get(0)).call();
+	assertTrue(res.isCompletedExceptionally());
+	try {
+	    res.get();
+	    fail("get() must throw");
+	}
+	catch(ExecutionException e)
+	{
+	    assertTrue(e.getCause() instanceof IllegalStateException);
+	    assertEquals("failure", e.getCause().getMessage());
+	}
+    }
+
+    @Test public void mainThread() throws Exception
+    {
+	final List<Event> queue = new ArrayList<>();
+	final CompletableFuture<Integer> res = AsyncCallableEvent.call(()->Integer.valueOf(7), true, queue::add);
+	assertTrue(queue.isEmpty());
+	assertTrue(res.isDone());
+	assertEquals(Integer.valueOf(7), res.get());
+	final CompletableFuture<Object> failed = AsyncCallableEvent.call(()->{ throw new Exception("failure"); }, true, queue::add);
+	assertTrue(queue.isEmpty());
+	assertTrue(failed.isCompletedExceptionally());
+    }
+
+    @Test public void failureSkipsRemaining()
+    {
+	final List<String> called = new ArrayList<>();
+	final AsyncCallableEvent event = new AsyncCallableEvent(new Callable[]{
+		()->called.add("first"),
+		()->{ throw new Exception("failure"); },
+		()->called.add("third")});
+	event.call();
+	assertTrue(event.future.isCompletedExceptionally());
+	assertEquals(1, called.size());
+    }
+}
@@ -0,0 +1,73 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import org.junit.*;
+
+import org.luwrain.core.events.*;
+
+public class EventQueueTest extends Assert
+{
+    @Test public void lanes()
+    {
+	final EventQueue q = new EventQueue();
+	final SystemEvent broadcast = new SystemEvent(SystemEvent.Type.BROADCAST, SystemEvent.Code.REFRESH);
+	final EventDispatching.RunnableEvent runnable = new EventDispatching.RunnableEvent(()->{});
+	final InputEvent input = new InputEvent(InputEvent.Special.ENTER);
+	q.putEvent(broadcast);
+	q.putEvent(runnable);
+	q.putEvent(input);
+	assertEquals(3, q.size());
+	assertTrue(q.takeEvent() == input);
+	assertTrue(q.takeEvent() == runnable);
+	assertTrue(q.takeEvent() == broadcast);
+	assertEquals(0, q.size());
+    }
+
+    @Test public void onceAgain()
+    {
+	final EventQueue q = new EventQueue();
+	final InputEvent first = new InputEvent('a');
+	final InputEvent second = new InputEvent('b');
+	q.putEvent(second);
+	q.onceAgain(first);
+	assertTrue(q.hasAgain());
+	assertTrue(q.takeEvent() == first);
+	assertFalse(q.hasAgain());
+	assertTrue(q.takeEvent() == second);
+    }
+
+    @Test public void idleCoalescing()
+    {
+	final EventQueue q = new EventQueue();
+	q.putEvent(new SystemEvent(SystemEvent.Code.IDLE));
+	q.putEvent(new SystemEvent(SystemEvent.Code.IDLE));
+	assertEquals(1, q.size());
+	q.takeEvent();
+	q.putEvent(new SystemEvent(SystemEvent.Code.IDLE));
+	assertEquals(1, q.size());
+    }
+
+    @Test public void inputOverflow()
+    {
+	final EventQueue q = new EventQueue();
+	for(int i = 0;i < EventQueue.INPUT_LANE_CAPACITY + 10;i++)
+	    q.putEvent(new InputEvent('a'));
+	assertEquals(EventQueue.INPUT_LANE_CAPACITY, q.size());
+	assertEquals(10, q.getDroppedCount());
+    }
+}
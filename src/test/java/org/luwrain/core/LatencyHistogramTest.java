@@ -0,0 +1,57 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import org.junit.*;
+
+public class LatencyHistogramTest extends Assert
+{
+    @Test public void buckets()
+    {
+	for(long v = 0;v < 100000;v++)
+	{
+	    final int index = LatencyHistogram.getBucketIndex(v);
+	    assertTrue(LatencyHistogram.getBucketUpperBound(index) >= v);
+	    if (index > 0)
+		assertTrue(LatencyHistogram.getBucketUpperBound(index - 1) < v);
+	}
+    }
+
+    @Test public void percentiles()
+    {
+	final LatencyHistogram h = new LatencyHistogram();
+	for(int i = 1;i <= 100;i++)
+	    h.record(i * 1000000L);//From 1 to 100 milliseconds
+	assertEquals(100, h.getCount());
+	assertEquals(100000, h.getMax());
+	assertEquals(50500, h.getMean());
+	final long p50 = h.getPercentile(50);
+	assertTrue(p50 >= 50000 && p50 <= 50000 * 17 / 16);
+	final long p99 = h.getPercentile(99);
+	assertTrue(p99 >= 99000 && p99 <= 100000);
+	assertEquals(100000, h.getPercentile(100));
+    }
+
+    @Test public void empty()
+    {
+	final LatencyHistogram h = new LatencyHistogram();
+	assertEquals(0, h.getCount());
+	assertEquals(0, h.getPercentile(99));
+	assertEquals("0.0ms", LatencyHistogram.formatMsec(0));
+	assertEquals("1.2ms", LatencyHistogram.formatMsec(1234));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import org.junit.*;
+
+import org.luwrain.interaction.*;
+
+public class ScreenBufferTest extends Assert
+{
+    @Test public void unchangedFrame()
+    {
+	final HeadlessInteraction interaction = new HeadlessInteraction(20, 5);
+	final ScreenBuffer buffer = new ScreenBuffer();
+	buffer.begin(20, 5);
+	buffer.drawText(0, 1, "first line", false);
+	buffer.drawText(0, 2, "second line", false);
+	assertTrue(buffer.flush(interaction));
+	assertEquals(1, interaction.getDrawSessionCount());
+	assertEquals("first line          ", interaction.getLine(1));
+	buffer.begin(20, 5);
+	buffer.clearRect(0, 1, 19, 4);
+	buffer.drawText(0, 1, "first line", false);
+	buffer.drawText(0, 2, "second line", false);
+	assertFalse(buffer.flush(interaction));
+	assertEquals(1, interaction.getDrawSessionCount());
+    }
+
+    @Test public void changedRun()
+    {
+	final HeadlessInteraction interaction = new HeadlessInteraction(20, 5);
+	final ScreenBuffer buffer = new ScreenBuffer();
+	buffer.begin(20, 5);
+	buffer.drawText(0, 1, "first line", false);
+	buffer.drawText(0, 2, "second line", false);
+	buffer.flush(interaction);
+	final long calls = buffer.getDrawCalls();
+	buffer.drawText(0, 2, "second LINE", false);
+	assertTrue(buffer.flush(interaction));
+	//One clearing and one drawing
+	assertEquals(calls + 2, buffer.getDrawCalls());
+	assertEquals("first line          ", interaction.getLine(1));
+	assertEquals("second LINE         ", interaction.getLine(2));
+	buffer.clearRect(0, 2, 19, 2);
+	buffer.flush(interaction);
+	assertEquals("                    ", interaction.getLine(2));
+    }
+
+    @Test public void hotPoint()
+    {
+	final HeadlessInteraction interaction = new HeadlessInteraction(20, 5);
+	final ScreenBuffer buffer = new ScreenBuffer();
+	buffer.begin(20, 5);
+	buffer.flush(interaction);
+	buffer.setHotPoint(3, 2);
+	assertTrue(buffer.flush(interaction));
+	assertEquals(3, interaction.getHotPointX());
+	assertEquals(2, interaction.getHotPointY());
+	assertFalse(buffer.flush(interaction));
+    }
+
+    @Test public void frameImmutable()
+    {
+	final ScreenBuffer buffer = new ScreenBuffer();
+	buffer.begin(20, 5);
+	buffer.drawText(0, 1, "abc", false);
+	final ScreenBuffer.Frame frame = buffer.snapshot();
+	assertFalse(buffer.isModified());
+	buffer.drawText(0, 1, "xyz", true);
+	assertTrue(buffer.isModified());
+	assertEquals('a', frame.getChar(0, 1));
+	assertEquals(ScreenBuffer.TEXT, frame.getAttr(0, 1));
+	assertEquals('x', buffer.snapshot().getChar(0, 1));
+    }
+
+    @Test public void skippedFrames()
+    {
+	final HeadlessInteraction interaction = new HeadlessInteraction(20, 5);
+	final ScreenBuffer buffer = new ScreenBuffer();
+	final ScreenBuffer.Painter painter = new ScreenBuffer.Painter();
+	buffer.begin(20, 5);
+	buffer.drawText(0, 1, "first", false);
+	painter.paint(buffer.snapshot(), interaction);
+	buffer.drawText(0, 2, "skipped", false);
+	buffer.snapshot();
+	buffer.invalidate();
+	buffer.snapshot();
+	buffer.drawText(0, 3, "last", false);
+	final long sessions = interaction.getDrawSessionCount();
+	assertTrue(painter.paint(buffer.snapshot(), interaction));
+	assertEquals(sessions + 1, interaction.getDrawSessionCount());
+	//The invalidation of the skipped frame still causes the full repainting
+	assertEquals("first               ", interaction.getLine(1));
+	assertEquals("skipped             ", interaction.getLine(2));
+	assertEquals("last                ", interaction.getLine(3));
+	assertFalse(painter.paint(buffer.snapshot(), interaction));
+    }
+}
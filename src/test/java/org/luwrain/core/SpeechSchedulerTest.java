@@ -0,0 +1,149 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core;
+
+import java.util.*;
+
+import org.junit.*;
+
+import org.luwrain.speech.*;
+import org.luwrain.core.SpeechScheduler.Priority;
+import org.luwrain.core.SpeechScheduler.Utterance;
+
+public class SpeechSchedulerTest extends Assert
+{
+    private final List<String> spoken = new ArrayList<>();
+    private final List<Boolean> cancelled = new ArrayList<>();
+    private final List<Runnable> timeouts = new ArrayList<>();
+    private Channel.Listener lastListener = null;
+
+    @Test public void backgroundWaits()
+    {
+	final SpeechScheduler scheduler = newScheduler(true);
+	scheduler.speak(utterance(Priority.EVENT_RESPONSE, "line"), true);
+	scheduler.speak(utterance(Priority.NOTIFICATION, "notification"), false);
+	assertEquals(1, spoken.size());
+	assertEquals(1, scheduler.getQueueSize());
+	lastListener.onFinished(0);
+	assertEquals(2, spoken.size());
+	assertEquals("notification", spoken.get(1));
+	lastListener.onFinished(0);
+	assertFalse(scheduler.isSpeaking());
+    }
+
+    @Test public void userInterrupts()
+    {
+	final SpeechScheduler scheduler = newScheduler(true);
+	scheduler.speak(utterance(Priority.MESSAGE, "message"), false);
+	final Channel.Listener interrupted = lastListener;
+	scheduler.speak(utterance(Priority.NOTIFICATION, "notification"), true);
+	assertEquals(2, spoken.size());
+	assertTrue(cancelled.get(1).booleanValue());
+	//The late notification of the interrupted utterance changes nothing
+	interrupted.onFinished(0);
+	assertTrue(scheduler.isSpeaking());
+    }
+
+    @Test public void higherPriorityInterrupts()
+    {
+	final SpeechScheduler scheduler = newScheduler(true);
+	scheduler.speak(utterance(Priority.NOTIFICATION, "notification"), false);
+	scheduler.speak(utterance(Priority.MESSAGE, "message"), false);
+	assertEquals(2, spoken.size());
+	assertEquals("message", spoken.get(1));
+	scheduler.speak(utterance(Priority.MESSAGE, "second message"), false);
+	assertEquals(2, spoken.size());
+	assertEquals(1, scheduler.getQueueSize());
+    }
+
+    @Test public void mergeAndSupersede()
+    {
+	final SpeechScheduler scheduler = newScheduler(true);
+	scheduler.speak(utterance(Priority.EVENT_RESPONSE, "line"), true);
+	scheduler.speak(utterance(Priority.NOTIFICATION, "10 percent"), false);
+	scheduler.speak(utterance(Priority.MESSAGE, "first"), false);
+	scheduler.speak(utterance(Priority.NOTIFICATION, "20 percent"), false);
+	scheduler.speak(utterance(Priority.MESSAGE, "second."), false);
+	scheduler.speak(utterance(Priority.MESSAGE, "third"), false);
+	assertEquals(2, scheduler.getQueueSize());
+	lastListener.onFinished(0);
+	assertEquals("first. second. third", spoken.get(1));
+	lastListener.onFinished(0);
+	assertEquals("20 percent", spoken.get(2));
+	assertEquals(0, scheduler.getQueueSize());
+    }
+
+    @Test public void eventResponsesInterrupt()
+    {
+	final SpeechScheduler scheduler = newScheduler(true);
+	scheduler.speak(utterance(Priority.EVENT_RESPONSE, "line"), true);
+	//E.g. the response to the system event put to the queue by the command
+	scheduler.speak(utterance(Priority.EVENT_RESPONSE, "closed"), false);
+	assertEquals(2, spoken.size());
+	assertTrue(cancelled.get(1).booleanValue());
+	assertEquals(0, scheduler.getQueueSize());
+    }
+
+    @Test public void lostNotification()
+    {
+	final SpeechScheduler scheduler = newScheduler(true);
+	scheduler.speak(utterance(Priority.MESSAGE, "message"), false);
+	scheduler.speak(utterance(Priority.NOTIFICATION, "notification"), false);
+	assertEquals(1, spoken.size());
+	assertEquals(1, timeouts.size());
+	//No notification from the engine
+	timeouts.get(0).run();
+	assertEquals(2, spoken.size());
+	assertEquals("notification", spoken.get(1));
+	assertFalse(cancelled.get(1).booleanValue());
+	assertEquals(0, scheduler.getQueueSize());
+	//The timeout for the utterance already finished does nothing
+	lastListener.onFinished(0);
+	timeouts.get(0).run();
+	assertEquals(2, spoken.size());
+	assertFalse(scheduler.isSpeaking());
+    }
+
+    @Test public void withoutNotifications()
+    {
+	final SpeechScheduler scheduler = newScheduler(false);
+	scheduler.speak(utterance(Priority.EVENT_RESPONSE, "line"), true);
+	scheduler.speak(utterance(Priority.NOTIFICATION, "notification"), false);
+	assertEquals(2, spoken.size());
+	assertTrue(cancelled.get(0).booleanValue());
+	assertFalse(cancelled.get(1).booleanValue());
+    }
+
+    private SpeechScheduler newScheduler(boolean notifying)
+    {
+	spoken.clear();
+	cancelled.clear();
+	timeouts.clear();
+	final SpeechScheduler res = new SpeechScheduler((u, listener, cancelPrevious)->{
+		spoken.add(u.text);
+		cancelled.add(Boolean.valueOf(cancelPrevious));
+		lastListener = listener;
+	    }, (r)->r.run(), (r, delay)->timeouts.add(r));
+	res.setNotifying(notifying);
+	return res;
+    }
+
+    static private Utterance utterance(Priority priority, String text)
+    {
+	return new Utterance(priority, text, 0, 0, null);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core.events;
+
+import java.util.*;
+
+import org.junit.*;
+
+import org.luwrain.core.events.InputEvent.Special;
+
+public class InputEventTest extends Assert
+{
+    @Test public void sameButton()
+    {
+	final InputEvent e1 = new InputEvent('x', false, false, true);
+	final InputEvent e2 = new InputEvent('ч', false, false, true);
+	final InputEvent e3 = new InputEvent('X', false, false, true);
+	assertTrue(e1.equals((Object)e2));
+	assertTrue(e1.equals((Object)e3));
+	assertEquals(e1.hashCode(), e2.hashCode());
+	assertEquals(e1.hashCode(), e3.hashCode());
+	assertFalse(e1.equals((Object)new InputEvent('x')));
+	assertFalse(e1.equals((Object)new InputEvent('c', false, false, true)));
+	assertFalse(new InputEvent(Special.ENTER).equals((Object)new InputEvent(Special.ENTER, true, false, false)));
+    }
+
+    @Test public void hashedMap()
+    {
+	final Map<InputEvent, String> m = new HashMap<>();
+	m.put(new InputEvent(Special.F1), "help");
+	m.put(new InputEvent('q', false, true, false), "quit");
+	assertEquals("help", m.get(InputEvent.of(Special.F1)));
+	assertEquals("quit", m.get(InputEvent.of('й', false, true, false)));
+	assertNull(m.get(InputEvent.of(Special.F1, false, true, false)));
+	assertNull(m.get(InputEvent.of('q', false, false, false)));
+    }
+
+    @Test public void shared()
+    {
+	assertSame(InputEvent.of(Special.ARROW_UP), InputEvent.of(Special.ARROW_UP, false, false, false));
+	assertSame(InputEvent.of('a', true, false, false), InputEvent.of('a', true, false, false));
+	assertNotSame(InputEvent.of('a', true, false, false), InputEvent.of('a', false, false, false));
+	final InputEvent e = InputEvent.of(Special.HOME, false, true, true);
+	assertTrue(e.isSpecial());
+	assertEquals(Special.HOME, e.getSpecial());
+	assertTrue(e.withControl() && e.withAlt() && !e.withShift());
+    }
+}
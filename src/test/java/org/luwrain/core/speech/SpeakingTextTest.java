@@ -0,0 +1,37 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.core.speech;
+
+import org.junit.*;
+
+public class SpeakingTextTest extends Assert
+{
+    @Test public void horizontalSpaces()
+    {
+	for(int c = 0;c <= Character.MAX_VALUE;c++)
+	{
+	    final String text = "a" + (char)c + "b";
+	    assertEquals(text.replaceAll("\\h", " "), SpeakingText.replaceHorizontalSpaces(text));
+	}
+    }
+
+    @Test public void noCopy()
+    {
+	final String text = "no special spaces\nhere";
+	assertSame(text, SpeakingText.replaceHorizontalSpaces(text));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+   Copyright 2012-2022 Michael Pozhidaev <msp@luwrain.org>
+
+   This file is part of LUWRAIN.
+
+   LUWRAIN is free software; you can redistribute it and/or
+   modify it under the terms of the GNU General Public
+   License as published by the Free Software Foundation; either
+   version 3 of the License, or (at your option) any later version.
+
+   LUWRAIN is distributed in the hope that it will be useful,
+   but WITHOUT ANY WARRANTY; without even the implied warranty of
+   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+   General Public License for more details.
+*/
+
+package org.luwrain.interaction;
+
+import java.util.*;
+
+import org.junit.*;
+
+import org.luwrain.core.*;
+import org.luwrain.core.events.*;
+
+public class InputReplayTest extends Assert
+{
+    @Test public void parse()
+    {
+	final List<InputReplay.Entry> entries = InputReplay.parse(Arrays.asList(
+										"# comment",
+										"0\ta",
+										"",
+										"150\tCtrl+Alt+ARROW_DOWN",
+										"300\tCtrl++",
+										"420\t "));
+	assertEquals(4, entries.size());
+	assertEquals(0, entries.get(0).time);
+	assertTrue(entries.get(0).event.equals(new InputEvent('a')));
+	assertEquals(150, entries.get(1).time);
+	assertTrue(entries.get(1).event.equals(new InputEvent(InputEvent.Special.ARROW_DOWN, false, true, true)));
+	assertTrue(entries.get(2).event.equals(new InputEvent('+', false, true, false)));
+	assertTrue(entries.get(3).event.equals(new InputEvent(' ')));
+	for(InputReplay.Entry e: entries)
+	    assertTrue(InputReplay.parse(Arrays.asList(e.toString())).get(0).event.equals(e.event));
+    }
+
+    @Test public void play() throws Exception
+    {
+	final List<Event> events = new ArrayList<>();
+	final InputReplay replay = new InputReplay((event)->{
+		events.add(event);
+		event.markAsProcessed();
+	    });
+	final long[] res = replay.play(InputReplay.parse(Arrays.asList("0\ta", "1000\tb")), 0, true);
+	assertEquals(2, res.length);
+	assertEquals(2, events.size());
+	assertEquals('b', ((InputEvent)events.get(1)).getChar());
+    }
+
+    @Test public void headlessGrid()
+    {
+	final HeadlessInteraction i = new HeadlessInteraction(10, 3);
+	i.drawText(8, 1, "abc");
+	i.drawText(-1, 0, "xyz");
+	assertEquals("yz        ", i.getLine(0));
+	assertEquals("        ab", i.getLine(1));
+	i.clearRect(0, 0, 9, 2);
+	assertEquals("          ", i.getLine(1));
+    }
+}